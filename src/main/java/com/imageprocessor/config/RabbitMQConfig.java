@@ -1,20 +1,63 @@
 package com.imageprocessor.config;
 
+import com.imageprocessor.queue.RetryPolicy;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
+// Filas, exchanges e containers só existem no modo rabbit; as constantes continuam valendo para os dois modos
 @Configuration
+@ConditionalOnProperty(name = "app.processing.dispatcher", havingValue = "rabbit", matchIfMissing = true)
 public class RabbitMQConfig {
 
     public static final String QUEUE_IMAGE_PROCESSING = "image-processing-queue";
     public static final String EXCHANGE_IMAGE_PROCESSING = "image-processing-exchange";
     public static final String ROUTING_KEY_IMAGE_PROCESSING = "image-processing";
 
+    // Faixas por custo estimado, cada uma com seu próprio consumidor e concorrência
+    public static final String QUEUE_IMAGE_PROCESSING_SMALL = "image-processing-small-queue";
+    public static final String QUEUE_IMAGE_PROCESSING_MEDIUM = "image-processing-medium-queue";
+    public static final String QUEUE_IMAGE_PROCESSING_LARGE = "image-processing-large-queue";
+    public static final String ROUTING_KEY_IMAGE_PROCESSING_SMALL = "image-processing.small";
+    public static final String ROUTING_KEY_IMAGE_PROCESSING_MEDIUM = "image-processing.medium";
+    public static final String ROUTING_KEY_IMAGE_PROCESSING_LARGE = "image-processing.large";
+
+    // Prioridade máxima das filas por faixa (x-max-priority); o RabbitMQ recomenda no máximo 10
+    public static final int MAX_PRIORITY = 10;
+
+    // Retentativas: a mensagem espera numa fila com TTL do seu nível e volta à faixa de origem pela routing key original.
+    // O cabeçalho do nível não pode começar com "x-": o exchange headers ignora esses argumentos no binding e entregaria
+    // a mensagem a todos os níveis. O exchange anterior ("image-processing-retry-exchange") ficou com esses bindings
+    public static final String EXCHANGE_IMAGE_PROCESSING_RETRY = "image-processing-retry-level-exchange";
+    public static final String HEADER_RETRY_LEVEL = "retry-level";
+
+    // Mensagens mortas: tentativas esgotadas, falhas permanentes e mensagens rejeitadas pelos consumidores
+    public static final String EXCHANGE_IMAGE_PROCESSING_DEAD_LETTER = "image-processing-dead-letter-exchange";
+    public static final String QUEUE_IMAGE_PROCESSING_DEAD_LETTER = "image-processing-dead-letter-queue";
+    public static final String HEADER_TASK_ID = "x-task-id";
+    public static final String HEADER_ATTEMPTS = "x-attempts";
+    public static final String HEADER_ERROR = "x-error";
+    public static final String HEADER_PERMANENT_FAILURE = "x-permanent-failure";
+
+    public static final String BATCH_CONTAINER_FACTORY = "batchContainerFactory";
+    public static final String IMAGE_CONTAINER_FACTORY = "imageContainerFactory";
+
+    // Ids dos containers das faixas, usados pelo ajuste adaptativo de consumidores
+    public static final String LISTENER_IMAGE_PROCESSING_SMALL = "image-processing-small";
+    public static final String LISTENER_IMAGE_PROCESSING_MEDIUM = "image-processing-medium";
+    public static final String LISTENER_IMAGE_PROCESSING_LARGE = "image-processing-large";
+
     @Bean
     public Queue imageProcessingQueue() {
         return new Queue(QUEUE_IMAGE_PROCESSING, true);
@@ -32,6 +75,120 @@ public class RabbitMQConfig {
                 .with(ROUTING_KEY_IMAGE_PROCESSING);
     }
 
+    @Bean
+    public Queue smallImageProcessingQueue() {
+        return QueueBuilder.durable(QUEUE_IMAGE_PROCESSING_SMALL).maxPriority(MAX_PRIORITY)
+                .deadLetterExchange(EXCHANGE_IMAGE_PROCESSING_DEAD_LETTER).build();
+    }
+
+    @Bean
+    public Queue mediumImageProcessingQueue() {
+        return QueueBuilder.durable(QUEUE_IMAGE_PROCESSING_MEDIUM).maxPriority(MAX_PRIORITY)
+                .deadLetterExchange(EXCHANGE_IMAGE_PROCESSING_DEAD_LETTER).build();
+    }
+
+    @Bean
+    public Queue largeImageProcessingQueue() {
+        return QueueBuilder.durable(QUEUE_IMAGE_PROCESSING_LARGE).maxPriority(MAX_PRIORITY)
+                .deadLetterExchange(EXCHANGE_IMAGE_PROCESSING_DEAD_LETTER).build();
+    }
+
+    @Bean
+    public Binding smallImageProcessingBinding(Queue smallImageProcessingQueue, DirectExchange imageProcessingExchange) {
+        return BindingBuilder.bind(smallImageProcessingQueue)
+                .to(imageProcessingExchange)
+                .with(ROUTING_KEY_IMAGE_PROCESSING_SMALL);
+    }
+
+    @Bean
+    public Binding mediumImageProcessingBinding(Queue mediumImageProcessingQueue, DirectExchange imageProcessingExchange) {
+        return BindingBuilder.bind(mediumImageProcessingQueue)
+                .to(imageProcessingExchange)
+                .with(ROUTING_KEY_IMAGE_PROCESSING_MEDIUM);
+    }
+
+    @Bean
+    public Binding largeImageProcessingBinding(Queue largeImageProcessingQueue, DirectExchange imageProcessingExchange) {
+        return BindingBuilder.bind(largeImageProcessingQueue)
+                .to(imageProcessingExchange)
+                .with(ROUTING_KEY_IMAGE_PROCESSING_LARGE);
+    }
+
+    @Bean
+    public HeadersExchange imageProcessingRetryExchange() {
+        return new HeadersExchange(EXCHANGE_IMAGE_PROCESSING_RETRY);
+    }
+
+    // Uma fila por nível, com a espera dobrando a cada nível; sem consumidores, a mensagem expira de volta para a faixa
+    @Bean
+    public Declarables imageProcessingRetryQueues(HeadersExchange imageProcessingRetryExchange, RetryPolicy retryPolicy) {
+        List<Declarable> declarables = new ArrayList<>();
+        for (int level = 1; level <= retryPolicy.getLevels(); level++) {
+            Queue queue = QueueBuilder.durable(retryQueueName(level))
+                    .ttl((int) retryPolicy.delayForLevel(level))
+                    .deadLetterExchange(EXCHANGE_IMAGE_PROCESSING)
+                    .build();
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue).to(imageProcessingRetryExchange)
+                    .where(HEADER_RETRY_LEVEL).matches(String.valueOf(level)));
+        }
+        return new Declarables(declarables);
+    }
+
+    @Bean
+    public FanoutExchange imageProcessingDeadLetterExchange() {
+        return new FanoutExchange(EXCHANGE_IMAGE_PROCESSING_DEAD_LETTER);
+    }
+
+    @Bean
+    public Queue imageProcessingDeadLetterQueue() {
+        return QueueBuilder.durable(QUEUE_IMAGE_PROCESSING_DEAD_LETTER).build();
+    }
+
+    @Bean
+    public Binding imageProcessingDeadLetterBinding(Queue imageProcessingDeadLetterQueue,
+                                                    FanoutExchange imageProcessingDeadLetterExchange) {
+        return BindingBuilder.bind(imageProcessingDeadLetterQueue).to(imageProcessingDeadLetterExchange);
+    }
+
+    public static String retryQueueName(int level) {
+        return "image-processing-retry-" + level + "-queue";
+    }
+
+    // Entrega até batch-size mensagens de uma vez ao consumidor; as propriedades spring.rabbitmq.listener.simple continuam valendo
+    @Bean(name = BATCH_CONTAINER_FACTORY)
+    public SimpleRabbitListenerContainerFactory batchContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            @Value("${app.processing.batch.size:10}") int batchSize,
+            @Value("${app.processing.batch.receive-timeout-ms:100}") long receiveTimeout) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setPrefetchCount(Math.max(batchSize, 1) * 2);
+        factory.setReceiveTimeout(receiveTimeout);
+        // Mensagens que derrubam o consumidor vão para a fila de mensagens mortas em vez de voltar em loop
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+
+    // Uma imagem por entrega: prefetch baixo evita que um consumidor ocupado retenha mensagens que outro poderia processar
+    @Bean(name = IMAGE_CONTAINER_FACTORY)
+    public SimpleRabbitListenerContainerFactory imageContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            @Value("${app.processing.listener.prefetch:1}") int prefetch,
+            @Value("${app.processing.listener.concurrency:1}") int concurrency,
+            @Value("${app.processing.listener.max-concurrency:4}") int maxConcurrency) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setPrefetchCount(prefetch);
+        factory.setConcurrentConsumers(concurrency);
+        factory.setMaxConcurrentConsumers(Math.max(concurrency, maxConcurrency));
+        factory.setDefaultRequeueRejected(false);
+        return factory;
+    }
+
     @Bean
     public MessageConverter jsonMessageConverter() {
         return new Jackson2JsonMessageConverter();
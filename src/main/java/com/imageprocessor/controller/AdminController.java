@@ -0,0 +1,46 @@
+package com.imageprocessor.controller;
+
+import com.imageprocessor.dto.DeadLetterDTO;
+import com.imageprocessor.dto.TenantQueueStatsDTO;
+import com.imageprocessor.service.ProcessingService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+@Tag(name = "Admin", description = "API administrativa da fila de processamento")
+@SecurityRequirement(name = "Bearer Authentication")
+public class AdminController {
+
+    private final ProcessingService processingService;
+
+    @GetMapping("/queue/tenants")
+    @Operation(summary = "Filas por usuário", description = "Profundidade e tempo de espera das filas justas de cada usuário neste nó")
+    public ResponseEntity<List<TenantQueueStatsDTO>> getTenantQueueStats() {
+        return ResponseEntity.ok(processingService.getTenantQueueStats());
+    }
+
+    @GetMapping("/dead-letters")
+    @Operation(summary = "Mensagens mortas", description = "Tarefas que esgotaram as tentativas ou falharam de forma permanente, sem removê-las")
+    public ResponseEntity<List<DeadLetterDTO>> getDeadLetters(@RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(processingService.getDeadLetters(limit));
+    }
+
+    @PostMapping("/dead-letters/replay")
+    @Operation(summary = "Reenviar mensagens mortas", description = "Devolve as tarefas mais antigas da fila de mensagens mortas ao processamento")
+    public ResponseEntity<Map<String, Integer>> replayDeadLetters(@RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(Map.of("replayed", processingService.replayDeadLetters(limit)));
+    }
+}
@@ -2,7 +2,9 @@ package com.imageprocessor.controller;
 
 import com.imageprocessor.dto.ProcessingRequestDTO;
 import com.imageprocessor.dto.ProcessingResponseDTO;
+import com.imageprocessor.dto.VariantSetRequestDTO;
 import com.imageprocessor.exception.ResourceNotFoundException;
+import com.imageprocessor.model.ProcessingVariant;
 import com.imageprocessor.service.ProcessingService;
 import com.imageprocessor.service.StorageService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -40,6 +42,14 @@ public class ProcessingController {
         return ResponseEntity.ok(responseDTO);
     }
 
+    @PostMapping("/variants")
+    @Operation(summary = "Criar conjunto de variantes", description = "Gera vários tamanhos de uma imagem a partir de uma única decodificação")
+    public ResponseEntity<ProcessingResponseDTO> createVariantSetTask(
+            @Valid @RequestBody VariantSetRequestDTO requestDTO) {
+        ProcessingResponseDTO responseDTO = processingService.createVariantSetTask(requestDTO);
+        return ResponseEntity.ok(responseDTO);
+    }
+
     @GetMapping
     @Operation(summary = "Listar tarefas", description = "Lista todas as tarefas de processamento do usuário atual")
     public ResponseEntity<Page<ProcessingResponseDTO>> getUserProcessingTasks(Pageable pageable) {
@@ -80,4 +90,31 @@ public class ProcessingController {
             throw new ResourceNotFoundException("Não foi possível ler o resultado: " + id);
         }
     }
+
+    @GetMapping("/{id}/variants/{name}/result")
+    @Operation(summary = "Visualizar variante", description = "Obtém a imagem resultante de uma variante de um conjunto")
+    public ResponseEntity<Resource> getVariantResult(@PathVariable Long id, @PathVariable String name) {
+        try {
+            ProcessingVariant variant = processingService.getVariant(id, name);
+
+            if (variant.getResultImagePath() == null) {
+                return ResponseEntity.notFound().build();
+            }
+
+            Path imagePath = storageService.getFilePath(variant.getResultImagePath());
+            Resource resource = new UrlResource(imagePath.toUri());
+
+            if (resource.exists() || resource.isReadable()) {
+                return ResponseEntity.ok()
+                        .header(HttpHeaders.CONTENT_DISPOSITION,
+                                "inline; filename=\"" + name + "-" + variant.getResultImagePath() + "\"")
+                        .contentType(MediaType.IMAGE_JPEG)
+                        .body(resource);
+            } else {
+                throw new ResourceNotFoundException("Resultado não encontrado para variante: " + name);
+            }
+        } catch (IOException e) {
+            throw new ResourceNotFoundException("Não foi possível ler o resultado: " + id);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package com.imageprocessor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeadLetterDTO {
+    private Long taskId;
+    private String routingKey;
+    private int attempts;
+    private String errorMessage;
+    private boolean permanent;
+    private LocalDateTime deadLetteredAt;
+}
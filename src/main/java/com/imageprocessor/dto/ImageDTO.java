@@ -16,6 +16,12 @@ public class ImageDTO {
     private String originalFilename;
     private String contentType;
     private Long size;
+    private Integer width;
+    private Integer height;
+    private String format;
+    private Integer bitDepth;
+    // Nulo apenas para imagens enviadas antes do registro de metadados no upload
+    private Integer frameCount;
     private String url;
     private LocalDateTime createdAt;
 }
\ No newline at end of file
@@ -16,4 +16,6 @@ public class PlanDTO {
     private boolean isPremium;
     private Integer dailyQuota;
     private Double monthlyPrice;
+    private Long maxPixels;
+    private Integer schedulingWeight;
 }
\ No newline at end of file
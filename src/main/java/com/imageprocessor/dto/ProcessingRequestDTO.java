@@ -1,5 +1,6 @@
 package com.imageprocessor.dto;
 
+import com.imageprocessor.util.ResizeMethod;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
@@ -21,5 +22,8 @@ public class ProcessingRequestDTO {
     @Max(value = 100, message = "Porcentagem de redimensionamento deve ser no máximo 100%")
     private Integer resizePercentage;
 
+    // Opcional: SCALR, BILINEAR, MITCHELL ou LANCZOS3
+    private ResizeMethod resizeMethod;
+
     private boolean grayscaleEnabled;
 }
\ No newline at end of file
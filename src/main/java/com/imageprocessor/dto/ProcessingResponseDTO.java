@@ -1,12 +1,14 @@
 package com.imageprocessor.dto;
 
 import com.imageprocessor.model.ProcessingTask.TaskStatus;
+import com.imageprocessor.util.ResizeMethod;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Data
 @Builder
@@ -22,6 +24,7 @@ public class ProcessingResponseDTO {
     private LocalDateTime createdAt;
     private LocalDateTime completedAt;
     private ProcessingConfigDTO config;
+    private List<VariantResultDTO> variants;
 
     @Data
     @Builder
@@ -30,6 +33,21 @@ public class ProcessingResponseDTO {
     public static class ProcessingConfigDTO {
         private boolean resizeEnabled;
         private Integer resizePercentage;
+        private ResizeMethod resizeMethod;
         private boolean grayscaleEnabled;
     }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class VariantResultDTO {
+        private String name;
+        private Integer resizePercentage;
+        private boolean grayscaleEnabled;
+        private ResizeMethod resizeMethod;
+        private Integer width;
+        private Integer height;
+        private String resultImageUrl;
+    }
 }
\ No newline at end of file
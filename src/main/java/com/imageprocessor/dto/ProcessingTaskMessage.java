@@ -0,0 +1,55 @@
+package com.imageprocessor.dto;
+
+import com.imageprocessor.util.ResizeMethod;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Mensagem publicada nas filas por faixa com tudo o que o worker precisa para processar sem consultar o banco
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProcessingTaskMessage {
+
+    // Versão 1 era apenas o id da tarefa, ainda aceito na fila única anterior
+    public static final int CURRENT_VERSION = 2;
+
+    private int version;
+    private Long taskId;
+    private Long imageId;
+    private String storagePath;
+    private String originalFilename;
+    private Integer width;
+    private Integer height;
+    private String ownerEmail;
+    private int priority;
+    private Config config;
+    private List<Variant> variants;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Config {
+        private boolean resizeEnabled;
+        private Integer resizePercentage;
+        private ResizeMethod resizeMethod;
+        private boolean grayscaleEnabled;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Variant {
+        private Long id;
+        private String name;
+        private Integer resizePercentage;
+        private ResizeMethod resizeMethod;
+        private boolean grayscaleEnabled;
+    }
+}
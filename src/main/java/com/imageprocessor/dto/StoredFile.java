@@ -0,0 +1,20 @@
+package com.imageprocessor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredFile {
+    private String storagePath;
+    private Integer width;
+    private Integer height;
+    private String format;
+    private Integer bitDepth;
+    private Integer frameCount;
+    private String contentHash;
+}
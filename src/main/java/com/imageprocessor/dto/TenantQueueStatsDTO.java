@@ -0,0 +1,20 @@
+package com.imageprocessor.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TenantQueueStatsDTO {
+    private Long userId;
+    private int weight;
+    private int queuedTasks;
+    private long oldestWaitMs;
+    private long dispatchedTasks;
+    private long averageWaitMs;
+    private long maxWaitMs;
+}
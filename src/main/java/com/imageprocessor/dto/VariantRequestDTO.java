@@ -0,0 +1,31 @@
+package com.imageprocessor.dto;
+
+import com.imageprocessor.util.ResizeMethod;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VariantRequestDTO {
+
+    @NotBlank(message = "Nome da variante é obrigatório")
+    @Pattern(regexp = "[a-zA-Z0-9_-]{1,50}", message = "Nome da variante deve conter apenas letras, números, '-' e '_'")
+    private String name;
+
+    @NotNull(message = "Porcentagem de redimensionamento da variante é obrigatória")
+    @Min(value = 1, message = "Porcentagem de redimensionamento deve ser no mínimo 1%")
+    @Max(value = 100, message = "Porcentagem de redimensionamento deve ser no máximo 100%")
+    private Integer resizePercentage;
+
+    private boolean grayscaleEnabled;
+
+    // Opcional: SCALR, BILINEAR, MITCHELL ou LANCZOS3
+    private ResizeMethod resizeMethod;
+}
@@ -0,0 +1,30 @@
+package com.imageprocessor.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class VariantSetRequestDTO {
+
+    @NotNull(message = "ID da imagem não pode ser nulo")
+    private Long imageId;
+
+    @NotEmpty(message = "Informe ao menos uma variante")
+    @Size(max = 10, message = "No máximo 10 variantes por tarefa")
+    private List<@Valid VariantRequestDTO> variants;
+
+    @AssertTrue(message = "Nomes de variantes devem ser únicos")
+    public boolean isVariantNamesUnique() {
+        return variants == null || variants.stream().map(VariantRequestDTO::getName).distinct().count() == variants.size();
+    }
+}
@@ -0,0 +1,11 @@
+package com.imageprocessor.exception;
+
+public class PixelBudgetExhaustedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public PixelBudgetExhaustedException(long requestedBytes, long waitMillis) {
+        super(String.format("Orçamento de memória de pixels esgotado: %d bytes não disponíveis após %d ms",
+                requestedBytes, waitMillis));
+    }
+}
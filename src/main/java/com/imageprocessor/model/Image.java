@@ -4,16 +4,22 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 @Entity
-@Table(name = "images")
+@Table(name = "images", indexes = {
+        @Index(name = "idx_images_content_hash", columnList = "content_hash")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -36,13 +42,36 @@ public class Image {
     @Column(nullable = false)
     private Long size;
 
+    // SHA-256 do arquivo enviado, calculado durante a cópia; nulo em imagens anteriores a ele
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    // Metadados lidos do cabeçalho no upload, sem decodificar os pixels
+    private Integer width;
+
+    private Integer height;
+
+    private String format;
+
+    @Column(name = "bit_depth")
+    private Integer bitDepth;
+
+    @Column(name = "frame_count")
+    private Integer frameCount;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "owner_id", nullable = false)
     private User owner;
 
     @OneToMany(mappedBy = "originalImage", cascade = CascadeType.ALL, orphanRemoval = true)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Set<ProcessingTask> processingTasks = new HashSet<>();
 
+    @OneToMany(mappedBy = "image", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Builder.Default
+    private List<ImagePyramidLevel> pyramidLevels = new ArrayList<>();
+
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
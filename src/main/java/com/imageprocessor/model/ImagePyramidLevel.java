@@ -0,0 +1,55 @@
+package com.imageprocessor.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "image_pyramid_levels", indexes = @Index(name = "idx_image_pyramid_levels_last_used", columnList = "last_used_at"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImagePyramidLevel {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "image_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Image image;
+
+    // Porcentagem da original usada para gerar o nível (50, 25, 12)
+    @Column(nullable = false)
+    private Integer percentage;
+
+    @Column(name = "storage_path", nullable = false)
+    private String storagePath;
+
+    @Column(nullable = false)
+    private Integer width;
+
+    @Column(nullable = false)
+    private Integer height;
+
+    @Column(nullable = false)
+    private Long size;
+
+    // Base da política de descarte: os níveis usados há mais tempo saem primeiro
+    @Column(name = "last_used_at", nullable = false)
+    private LocalDateTime lastUsedAt;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
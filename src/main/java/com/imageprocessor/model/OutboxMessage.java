@@ -0,0 +1,58 @@
+package com.imageprocessor.model;
+
+import com.imageprocessor.queue.ProcessingLane;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+// Mensagem gravada na mesma transação da tarefa e publicada depois pelo FairShareDispatcher
+@Entity
+@Table(name = "processing_outbox", indexes = @Index(name = "idx_processing_outbox_user", columnList = "user_id, id"))
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "task_id", nullable = false)
+    private Long taskId;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // Peso do plano no momento da criação, usado pelo escalonamento justo
+    @Column(nullable = false)
+    private int weight;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ProcessingLane lane;
+
+    @Column(nullable = false)
+    private int priority;
+
+    // Custo estimado (megapixels × peso das operações)
+    @Column(nullable = false)
+    private double cost;
+
+    // ProcessingTaskMessage serializada em JSON
+    @Column(nullable = false, length = 8192)
+    private String payload;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    // Reservada por um relay que está publicando a linha; vencido o prazo, outro relay pode publicá-la de novo
+    @Column(name = "claimed_until")
+    private LocalDateTime claimedUntil;
+}
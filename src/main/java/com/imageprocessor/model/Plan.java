@@ -38,6 +38,14 @@ public class Plan {
     @Column(name = "monthly_price", nullable = false)
     private Double monthlyPrice;
 
+    // Maior imagem aceita no upload (largura x altura); nulo usa o limite padrão da aplicação
+    @Column(name = "max_pixels")
+    private Long maxPixels;
+
+    // Peso do usuário no escalonamento justo entre inquilinos; nulo equivale a 1
+    @Column(name = "scheduling_weight")
+    private Integer schedulingWeight;
+
     @OneToMany(mappedBy = "plan")
     private Set<Subscription> subscriptions = new HashSet<>();
 
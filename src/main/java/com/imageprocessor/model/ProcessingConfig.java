@@ -1,10 +1,13 @@
 package com.imageprocessor.model;
 
+import com.imageprocessor.util.ResizeMethod;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -28,10 +31,16 @@ public class ProcessingConfig {
     @Column(name = "resize_percentage")
     private Integer resizePercentage;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "resize_method")
+    private ResizeMethod resizeMethod;
+
     @Column(name = "grayscale_enabled")
     private boolean grayscaleEnabled;
 
     @OneToOne(mappedBy = "processingConfig")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private ProcessingTask processingTask;
 
     @CreationTimestamp
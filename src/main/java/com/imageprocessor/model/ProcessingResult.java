@@ -0,0 +1,40 @@
+package com.imageprocessor.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+// Resultado já gerado para um par (conteúdo da imagem, configuração normalizada), compartilhado entre tarefas.
+// O arquivo só é removido quando a última tarefa que aponta para ele deixa de existir. Sem caminho, o registro
+// marca uma execução em andamento e serve de trava para pedidos idênticos concorrentes
+@Entity
+@Table(name = "processing_results")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProcessingResult {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "result_key", nullable = false, unique = true, length = 64)
+    private String resultKey;
+
+    @Column(name = "storage_path")
+    private String storagePath;
+
+    @Column(name = "ref_count", nullable = false)
+    @Builder.Default
+    private int refCount = 0;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -9,9 +9,17 @@ import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
 @Entity
-@Table(name = "processing_tasks")
+@Table(name = "processing_tasks", indexes = {
+        @Index(name = "idx_processing_tasks_status_priority", columnList = "status, priority"),
+        @Index(name = "idx_processing_tasks_status_lease", columnList = "status, lease_expires_at"),
+        @Index(name = "idx_processing_tasks_status_updated", columnList = "status, updated_at"),
+        @Index(name = "idx_processing_tasks_result_key", columnList = "result_key"),
+        @Index(name = "idx_processing_tasks_coalesced_into", columnList = "coalesced_into")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -40,6 +48,45 @@ public class ProcessingTask {
     @JoinColumn(name = "processing_config_id")
     private ProcessingConfig processingConfig;
 
+    // Conjunto de variantes geradas a partir de uma única decodificação (vazio em tarefas simples)
+    @OneToMany(mappedBy = "processingTask", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OrderBy("id")
+    @Builder.Default
+    private List<ProcessingVariant> variants = new ArrayList<>();
+
+    // Prioridade AMQP (0-10) definida pelo plano do usuário e elevada pela proteção contra inanição
+    @Column(nullable = false)
+    @Builder.Default
+    private int priority = 0;
+
+    // Tentativas já falhas e o limite definido na criação; falhas transitórias voltam a PENDING até o limite
+    @Column(nullable = false)
+    @Builder.Default
+    private int attempts = 0;
+
+    @Column(name = "max_attempts", nullable = false)
+    @Builder.Default
+    private int maxAttempts = 1;
+
+    // Antes disso a tarefa pendente está aguardando a espera da retentativa
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    // Concessão do nó que está processando a tarefa, renovada por heartbeat; vencida, a tarefa é retomada
+    @Column(name = "lease_owner")
+    private String leaseOwner;
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
+    // Chave do resultado (conteúdo da imagem + configuração normalizada); nula quando a tarefa não é memoizável
+    @Column(name = "result_key", length = 64)
+    private String resultKey;
+
+    // Tarefa idêntica já em andamento; esta não é enfileirada e recebe o resultado dela ao concluir
+    @Column(name = "coalesced_into")
+    private Long coalescedInto;
+
     @Column(name = "completed_at")
     private LocalDateTime completedAt;
 
@@ -0,0 +1,49 @@
+package com.imageprocessor.model;
+
+import com.imageprocessor.util.ResizeMethod;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@Entity
+@Table(name = "processing_variants")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProcessingVariant {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "processing_task_id", nullable = false)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private ProcessingTask processingTask;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(name = "resize_percentage", nullable = false)
+    private Integer resizePercentage;
+
+    @Column(name = "grayscale_enabled")
+    private boolean grayscaleEnabled;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "resize_method")
+    private ResizeMethod resizeMethod;
+
+    @Column(name = "result_image_path")
+    private String resultImagePath;
+
+    private Integer width;
+
+    private Integer height;
+}
@@ -0,0 +1,77 @@
+package com.imageprocessor.queue;
+
+import com.imageprocessor.model.ProcessingTask;
+import com.imageprocessor.repository.ProcessingTaskRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Workers locais do modo de fila em banco: assumem tarefas em lotes e executam pelo mesmo caminho do consumidor RabbitMQ
+@Component
+@ConditionalOnProperty(name = "app.processing.dispatcher", havingValue = "database")
+@RequiredArgsConstructor
+@Slf4j
+public class DatabaseQueueWorker {
+
+    private final DatabaseTaskDispatcher databaseTaskDispatcher;
+    private final ProcessingTaskRepository processingTaskRepository;
+    private final ImageProcessingConsumer imageProcessingConsumer;
+    private final WorkerLeases workerLeases;
+
+    @Value("${app.processing.database-queue.workers:2}")
+    private int workers;
+
+    @Value("${app.processing.database-queue.batch-size:10}")
+    private int batchSize;
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(workers);
+        log.info("Fila de processamento em banco ativa no nó {} com {} workers", workerLeases.getNodeId(), workers);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Tarefas interrompidas voltam à fila quando a concessão expirar
+        executor.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${app.processing.database-queue.poll-interval-ms:1000}")
+    public void poll() {
+        // As concessões deste nó incluem as tarefas recebidas do RabbitMQ, se os dois caminhos estiverem ativos
+        int idle = workers - workerLeases.inFlightCount();
+        if (idle <= 0) {
+            return;
+        }
+
+        List<Long> ids = databaseTaskDispatcher.leaseTasks(workerLeases.getNodeId(), Math.min(idle, batchSize));
+        if (ids.isEmpty()) {
+            return;
+        }
+        workerLeases.track(ids);
+
+        for (ProcessingTask task : processingTaskRepository.findWithDetailsByIdIn(ids)) {
+            executor.execute(() -> {
+                try {
+                    imageProcessingConsumer.processClaimed(task);
+                } catch (Exception e) {
+                    log.error("Erro inesperado ao processar tarefa {}", task.getId(), e);
+                } finally {
+                    workerLeases.release(List.of(task.getId()));
+                }
+            });
+        }
+        log.debug("{} tarefas assumidas pelo nó {}", ids.size(), workerLeases.getNodeId());
+    }
+}
@@ -0,0 +1,111 @@
+package com.imageprocessor.queue;
+
+import com.imageprocessor.dto.DeadLetterDTO;
+import com.imageprocessor.dto.TenantQueueStatsDTO;
+import com.imageprocessor.model.ProcessingTask;
+import com.imageprocessor.repository.ProcessingTaskRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Fila de trabalho na própria tabela processing_tasks, sem broker: a linha PENDING é a entrada da fila
+@Component
+@ConditionalOnProperty(name = "app.processing.dispatcher", havingValue = "database")
+@RequiredArgsConstructor
+@Slf4j
+public class DatabaseTaskDispatcher implements TaskDispatcher {
+
+    private final ProcessingTaskRepository processingTaskRepository;
+    private final WorkerLeases workerLeases;
+
+    @Override
+    public void submit(ProcessingTask task, Long userId, int weight) {
+        // Nada a fazer: a tarefa fica visível aos workers quando a transação de criação é confirmada
+    }
+
+    @Override
+    public boolean isQueued(Long taskId) {
+        return false;
+    }
+
+    @Override
+    public void requeue(ProcessingTask task) {
+        // A linha continua PENDING; a leitura segue a prioridade
+    }
+
+    @Override
+    public void retry(ProcessingTask task, int failedAttempts) {
+        // A linha já está PENDING com next_attempt_at; a leitura só a assume depois da espera
+    }
+
+    @Override
+    public void deadLetter(ProcessingTask task, int attempts, String error, boolean permanent) {
+        // As tarefas FAILED são a fila de mensagens mortas deste modo
+    }
+
+    @Override
+    public List<DeadLetterDTO> getDeadLetters(int limit) {
+        return processingTaskRepository.findByStatusOrderByIdAsc(ProcessingTask.TaskStatus.FAILED, PageRequest.of(0, limit))
+                .stream()
+                .map(task -> DeadLetterDTO.builder()
+                        .taskId(task.getId())
+                        .attempts(task.getAttempts())
+                        .errorMessage(task.getErrorMessage())
+                        .permanent(task.getAttempts() < task.getMaxAttempts())
+                        .deadLetteredAt(task.getCompletedAt())
+                        .build())
+                .toList();
+    }
+
+    @Override
+    public int replayDeadLetters(int limit) {
+        List<Long> ids = processingTaskRepository.findByStatusOrderByIdAsc(ProcessingTask.TaskStatus.FAILED,
+                PageRequest.of(0, limit)).stream().map(ProcessingTask::getId).toList();
+        return ids.isEmpty() ? 0 : processingTaskRepository.resetFailed(ids, ProcessingTask.TaskStatus.FAILED,
+                ProcessingTask.TaskStatus.PENDING, LocalDateTime.now());
+    }
+
+    // Assume até limit tarefas pendentes ou com concessão expirada, em ordem de prioridade
+    @Transactional
+    public List<Long> leaseTasks(String owner, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        List<ProcessingTask> tasks = processingTaskRepository.lockClaimable(ProcessingTask.TaskStatus.PENDING,
+                ProcessingTask.TaskStatus.PROCESSING, now, PageRequest.of(0, limit));
+
+        List<Long> ids = new ArrayList<>(tasks.size());
+        for (ProcessingTask task : tasks) {
+            if (task.getStatus() == ProcessingTask.TaskStatus.PROCESSING) {
+                log.warn("Concessão da tarefa {} expirou com {}; assumida por {}", task.getId(), task.getLeaseOwner(), owner);
+            }
+            task.setStatus(ProcessingTask.TaskStatus.PROCESSING);
+            task.setLeaseOwner(owner);
+            task.setLeaseExpiresAt(workerLeases.leaseUntil(now));
+            ids.add(task.getId());
+        }
+        return ids;
+    }
+
+    @Override
+    public List<TenantQueueStatsDTO> getStats() {
+        LocalDateTime now = LocalDateTime.now();
+        List<TenantQueueStatsDTO> result = new ArrayList<>();
+        for (Object[] row : processingTaskRepository.summarizeByOwner(ProcessingTask.TaskStatus.PENDING)) {
+            result.add(TenantQueueStatsDTO.builder()
+                    .userId((Long) row[0])
+                    .queuedTasks(((Number) row[1]).intValue())
+                    .oldestWaitMs(Duration.between((LocalDateTime) row[2], now).toMillis())
+                    .build());
+        }
+        result.sort(Comparator.comparingInt(TenantQueueStatsDTO::getQueuedTasks).reversed());
+        return result;
+    }
+}
@@ -0,0 +1,129 @@
+package com.imageprocessor.queue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.imageprocessor.config.RabbitMQConfig;
+import com.imageprocessor.dto.DeadLetterDTO;
+import com.imageprocessor.model.ProcessingTask;
+import com.imageprocessor.repository.ProcessingTaskRepository;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.GetResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Inspeção e reenvio da fila de mensagens mortas do RabbitMQ
+@Component
+@ConditionalOnProperty(name = "app.processing.dispatcher", havingValue = "rabbit", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class DeadLetterQueue {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final ProcessingTaskRepository processingTaskRepository;
+    private final ObjectMapper objectMapper;
+
+    // Lê sem confirmar e devolve tudo à fila no final, na mesma ordem
+    public List<DeadLetterDTO> peek(int limit) {
+        return rabbitTemplate.execute(channel -> {
+            List<DeadLetterDTO> entries = new ArrayList<>();
+            long lastTag = -1;
+            for (int i = 0; i < limit; i++) {
+                GetResponse response = channel.basicGet(RabbitMQConfig.QUEUE_IMAGE_PROCESSING_DEAD_LETTER, false);
+                if (response == null) {
+                    break;
+                }
+                lastTag = response.getEnvelope().getDeliveryTag();
+                entries.add(toDto(response));
+            }
+            if (lastTag >= 0) {
+                channel.basicNack(lastTag, true, true);
+            }
+            return entries;
+        });
+    }
+
+    // Devolve as mensagens às faixas de origem; as tarefas falhas voltam a PENDING com as tentativas zeradas
+    public int replay(int limit) {
+        Integer replayed = rabbitTemplate.execute(channel -> {
+            int count = 0;
+            for (int i = 0; i < limit; i++) {
+                GetResponse response = channel.basicGet(RabbitMQConfig.QUEUE_IMAGE_PROCESSING_DEAD_LETTER, false);
+                if (response == null) {
+                    break;
+                }
+                // O reset é confirmado antes da publicação para que o consumidor encontre a tarefa pendente
+                Long taskId = taskId(response);
+                if (taskId != null) {
+                    processingTaskRepository.resetFailed(List.of(taskId), ProcessingTask.TaskStatus.FAILED,
+                            ProcessingTask.TaskStatus.PENDING, LocalDateTime.now());
+                }
+                channel.basicPublish(RabbitMQConfig.EXCHANGE_IMAGE_PROCESSING, response.getEnvelope().getRoutingKey(),
+                        withoutFailureHeaders(response.getProps()), response.getBody());
+                channel.basicAck(response.getEnvelope().getDeliveryTag(), false);
+                count++;
+            }
+            return count;
+        });
+        log.info("{} mensagens reenviadas a partir da fila de mensagens mortas", replayed);
+        return replayed != null ? replayed : 0;
+    }
+
+    private DeadLetterDTO toDto(GetResponse response) {
+        Map<String, Object> headers = headers(response.getProps());
+        Object attempts = headers.get(RabbitMQConfig.HEADER_ATTEMPTS);
+        Object error = headers.get(RabbitMQConfig.HEADER_ERROR);
+        LocalDateTime deadLetteredAt = response.getProps().getTimestamp() != null
+                ? LocalDateTime.ofInstant(response.getProps().getTimestamp().toInstant(), ZoneId.systemDefault())
+                : null;
+        return DeadLetterDTO.builder()
+                .taskId(taskId(response))
+                .routingKey(response.getEnvelope().getRoutingKey())
+                .attempts(attempts instanceof Number number ? number.intValue() : 0)
+                // Sem o cabeçalho de erro, a mensagem foi rejeitada pelo consumidor (x-death)
+                .errorMessage(error != null ? error.toString() : headers.containsKey("x-death") ? "Mensagem rejeitada pelo consumidor" : null)
+                .permanent(Boolean.TRUE.equals(headers.get(RabbitMQConfig.HEADER_PERMANENT_FAILURE)))
+                .deadLetteredAt(deadLetteredAt)
+                .build();
+    }
+
+    private Long taskId(GetResponse response) {
+        Object header = headers(response.getProps()).get(RabbitMQConfig.HEADER_TASK_ID);
+        if (header instanceof Number number) {
+            return number.longValue();
+        }
+        // Mensagens rejeitadas pelo consumidor não têm o cabeçalho; tentar o corpo (mensagem v2 ou id da v1)
+        try {
+            JsonNode body = objectMapper.readTree(response.getBody());
+            JsonNode id = body.isObject() ? body.get("taskId") : body;
+            return id != null && id.canConvertToLong() ? id.asLong() : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private AMQP.BasicProperties withoutFailureHeaders(AMQP.BasicProperties properties) {
+        Map<String, Object> headers = new HashMap<>(headers(properties));
+        headers.remove("x-death");
+        headers.remove(RabbitMQConfig.HEADER_TASK_ID);
+        headers.remove(RabbitMQConfig.HEADER_ATTEMPTS);
+        headers.remove(RabbitMQConfig.HEADER_ERROR);
+        headers.remove(RabbitMQConfig.HEADER_PERMANENT_FAILURE);
+        headers.remove(RabbitMQConfig.HEADER_RETRY_LEVEL);
+        return properties.builder().headers(headers).build();
+    }
+
+    private static Map<String, Object> headers(AMQP.BasicProperties properties) {
+        return properties.getHeaders() != null ? properties.getHeaders() : Map.of();
+    }
+}
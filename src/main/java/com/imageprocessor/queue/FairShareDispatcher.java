@@ -0,0 +1,297 @@
+package com.imageprocessor.queue;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.imageprocessor.dto.DeadLetterDTO;
+import com.imageprocessor.dto.ProcessingTaskMessage;
+import com.imageprocessor.dto.TenantQueueStatsDTO;
+import com.imageprocessor.model.OutboxMessage;
+import com.imageprocessor.model.ProcessingTask;
+import com.imageprocessor.repository.OutboxMessageRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+@ConditionalOnProperty(name = "app.processing.dispatcher", havingValue = "rabbit", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class FairShareDispatcher implements TaskDispatcher {
+
+    private final ImageProcessingProducer imageProcessingProducer;
+    private final TaskCostEstimator taskCostEstimator;
+    private final OutboxMessageRepository outboxMessageRepository;
+    private final AmqpAdmin amqpAdmin;
+    private final ObjectMapper objectMapper;
+    private final RetryPolicy retryPolicy;
+    private final DeadLetterQueue deadLetterQueue;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.processing.fair-share.enabled:true}")
+    private boolean enabled;
+
+    // Mensagens prontas mantidas no broker; o restante espera no outbox
+    @Value("${app.processing.fair-share.broker-backlog:16}")
+    private int brokerBacklog;
+
+    // Custo liberado por rodada para um usuário de peso 1 (mesma unidade do TaskCostEstimator)
+    @Value("${app.processing.fair-share.quantum:10}")
+    private double quantum;
+
+    // Custo atribuído a tarefas de imagens sem dimensões conhecidas
+    @Value("${app.processing.fair-share.default-cost:10}")
+    private double defaultCost;
+
+    // Usuários examinados por ciclo, começando pelos atendidos há mais tempo
+    @Value("${app.processing.fair-share.max-tenants-per-cycle:64}")
+    private int maxTenantsPerCycle;
+
+    // Sem escalonamento justo, o outbox é drenado em ordem de criação em lotes deste tamanho
+    @Value("${app.processing.outbox.batch-size:100}")
+    private int outboxBatchSize;
+
+    // Prazo da reserva das linhas em publicação; precisa cobrir a espera pelas confirmações do broker
+    @Value("${app.processing.outbox.claim-ms:60000}")
+    private long claimMillis;
+
+    // Crédito do DRR e estatísticas de despacho por usuário, mantidos entre ciclos neste nó
+    private final Map<Long, TenantState> tenants = new ConcurrentHashMap<>();
+    private long cycle;
+
+    // Grava a mensagem na transação de quem cria a tarefa; nada chega ao broker antes do commit
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void submit(ProcessingTask task, Long userId, int weight) {
+        Double estimated = taskCostEstimator.estimate(task);
+        outboxMessageRepository.save(OutboxMessage.builder()
+                .taskId(task.getId())
+                .userId(userId)
+                .weight(Math.max(1, weight))
+                .lane(taskCostEstimator.selectLane(task))
+                .priority(task.getPriority())
+                .cost(Math.max(1.0, estimated != null ? estimated : defaultCost))
+                .payload(serialize(imageProcessingProducer.toMessage(task)))
+                .build());
+    }
+
+    @Override
+    public boolean isQueued(Long taskId) {
+        return outboxMessageRepository.existsByTaskId(taskId);
+    }
+
+    // A tarefa já passou pelo outbox; vai direto para o broker
+    @Override
+    public void requeue(ProcessingTask task) {
+        imageProcessingProducer.sendProcessingTask(task);
+    }
+
+    @Override
+    public void retry(ProcessingTask task, int failedAttempts) {
+        imageProcessingProducer.sendRetry(imageProcessingProducer.toMessage(task), taskCostEstimator.selectLane(task),
+                retryPolicy.levelFor(failedAttempts));
+    }
+
+    @Override
+    public void deadLetter(ProcessingTask task, int attempts, String error, boolean permanent) {
+        imageProcessingProducer.sendToDeadLetter(imageProcessingProducer.toMessage(task), taskCostEstimator.selectLane(task),
+                attempts, error, permanent);
+    }
+
+    @Override
+    public List<DeadLetterDTO> getDeadLetters(int limit) {
+        return deadLetterQueue.peek(limit);
+    }
+
+    @Override
+    public int replayDeadLetters(int limit) {
+        return deadLetterQueue.replay(limit);
+    }
+
+    // Três passos, sem transação aberta durante a publicação: reserva as linhas e confirma, publica e espera o broker,
+    // e só então remove as linhas. Um nó que caia entre a publicação e a remoção deixa a reserva vencer e as linhas
+    // são publicadas de novo; a entrega é pelo menos uma vez e o consumidor descarta a tarefa já assumida
+    @Scheduled(fixedDelayString = "${app.processing.fair-share.dispatch-interval-ms:200}")
+    public void dispatch() {
+        if (outboxMessageRepository.findFirstByOrderByIdAsc().isEmpty()) {
+            return;
+        }
+
+        int available;
+        try {
+            available = enabled ? brokerBacklog - readyMessages() : outboxBatchSize;
+        } catch (AmqpException e) {
+            log.debug("Broker indisponível, despacho adiado: {}", e.getMessage());
+            return;
+        }
+        if (available <= 0) {
+            return;
+        }
+
+        List<OutboxMessage> selected = transactionTemplate.execute(status -> claim(available));
+        if (selected.isEmpty()) {
+            return;
+        }
+        List<Long> ids = selected.stream().map(OutboxMessage::getId).toList();
+
+        try {
+            imageProcessingProducer.sendConfirmed(selected.stream()
+                    .map(message -> new ImageProcessingProducer.OutboundTask(deserialize(message.getPayload()), message.getLane()))
+                    .toList());
+        } catch (RuntimeException e) {
+            outboxMessageRepository.releaseClaims(ids);
+            throw e;
+        }
+        outboxMessageRepository.deleteAllByIdInBatch(ids);
+
+        LocalDateTime now = LocalDateTime.now();
+        for (OutboxMessage message : selected) {
+            tenants.computeIfAbsent(message.getUserId(), id -> new TenantState())
+                    .recordDispatched(Duration.between(message.getCreatedAt(), now).toMillis());
+        }
+        log.debug("{} tarefas publicadas a partir do outbox", selected.size());
+    }
+
+    @Override
+    public List<TenantQueueStatsDTO> getStats() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, TenantQueueStatsDTO> stats = new HashMap<>();
+        for (Object[] row : outboxMessageRepository.summarizeByUser()) {
+            Long userId = (Long) row[0];
+            stats.put(userId, TenantQueueStatsDTO.builder()
+                    .userId(userId)
+                    .queuedTasks(((Number) row[1]).intValue())
+                    .oldestWaitMs(Duration.between((LocalDateTime) row[2], now).toMillis())
+                    .build());
+        }
+        tenants.forEach((userId, state) -> {
+            TenantQueueStatsDTO dto = stats.computeIfAbsent(userId, id -> TenantQueueStatsDTO.builder().userId(id).build());
+            synchronized (state) {
+                dto.setWeight(state.weight);
+                dto.setDispatchedTasks(state.dispatched);
+                dto.setAverageWaitMs(state.dispatched > 0 ? state.totalWaitMillis / state.dispatched : 0);
+                dto.setMaxWaitMs(state.maxWaitMillis);
+            }
+        });
+        List<TenantQueueStatsDTO> result = new ArrayList<>(stats.values());
+        result.sort(Comparator.comparingInt(TenantQueueStatsDTO::getQueuedTasks).reversed());
+        return result;
+    }
+
+    // Seleciona e reserva as linhas do ciclo; as travas de linha duram só até o commit desta transação curta
+    private List<OutboxMessage> claim(int available) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxMessage> selected = enabled
+                ? selectFairly(available, now)
+                : outboxMessageRepository.lockOldest(now, PageRequest.of(0, available));
+        if (!selected.isEmpty()) {
+            outboxMessageRepository.claim(selected.stream().map(OutboxMessage::getId).toList(),
+                    now.plus(claimMillis, ChronoUnit.MILLIS));
+        }
+        return selected;
+    }
+
+    // Deficit round robin sobre as mensagens mais antigas de cada usuário
+    private synchronized List<OutboxMessage> selectFairly(int limit, LocalDateTime now) {
+        cycle++;
+        List<Long> userIds = new ArrayList<>(outboxMessageRepository.findPendingUserIds(now));
+        userIds.sort(Comparator.comparingLong(id -> tenants.containsKey(id) ? tenants.get(id).lastServedCycle : 0));
+
+        Deque<Long> ring = new ArrayDeque<>();
+        Map<Long, Deque<OutboxMessage>> candidates = new HashMap<>();
+        for (Long userId : userIds.subList(0, Math.min(userIds.size(), maxTenantsPerCycle))) {
+            List<OutboxMessage> rows = outboxMessageRepository.lockOldestByUser(userId, now, PageRequest.of(0, limit));
+            if (!rows.isEmpty()) {
+                candidates.put(userId, new ArrayDeque<>(rows));
+                ring.addLast(userId);
+            }
+        }
+
+        List<OutboxMessage> selected = new ArrayList<>();
+        while (!ring.isEmpty() && selected.size() < limit) {
+            Long userId = ring.pollFirst();
+            Deque<OutboxMessage> queue = candidates.get(userId);
+            TenantState state = tenants.computeIfAbsent(userId, id -> new TenantState());
+            state.weight = queue.peekFirst().getWeight();
+            // Cada visita credita quantum × peso; o usuário só libera tarefas enquanto o crédito cobre o custo
+            state.deficit += quantum * state.weight;
+            while (!queue.isEmpty() && queue.peekFirst().getCost() <= state.deficit && selected.size() < limit) {
+                OutboxMessage message = queue.pollFirst();
+                state.deficit -= message.getCost();
+                state.lastServedCycle = cycle;
+                selected.add(message);
+            }
+            if (queue.isEmpty()) {
+                // Fila vazia perde o crédito acumulado, como no DRR clássico
+                state.deficit = 0;
+            } else {
+                ring.addLast(userId);
+            }
+        }
+        return selected;
+    }
+
+    private int readyMessages() {
+        int ready = 0;
+        for (ProcessingLane lane : ProcessingLane.values()) {
+            QueueInformation info = amqpAdmin.getQueueInfo(lane.getQueue());
+            if (info != null) {
+                ready += info.getMessageCount();
+            }
+        }
+        return ready;
+    }
+
+    private String serialize(ProcessingTaskMessage message) {
+        try {
+            return objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Falha ao serializar mensagem da tarefa " + message.getTaskId(), e);
+        }
+    }
+
+    private ProcessingTaskMessage deserialize(String payload) {
+        try {
+            return objectMapper.readValue(payload, ProcessingTaskMessage.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Mensagem inválida no outbox", e);
+        }
+    }
+
+    private static class TenantState {
+
+        int weight = 1;
+        double deficit;
+        long lastServedCycle;
+        long dispatched;
+        long totalWaitMillis;
+        long maxWaitMillis;
+
+        synchronized void recordDispatched(long waitMillis) {
+            dispatched++;
+            totalWaitMillis += waitMillis;
+            maxWaitMillis = Math.max(maxWaitMillis, waitMillis);
+        }
+    }
+}
@@ -1,23 +1,46 @@
 package com.imageprocessor.queue;
 
-import com.imageprocessor.config.RabbitMQConfig;
+import com.imageprocessor.dto.ProcessingTaskMessage;
+import com.imageprocessor.exception.PixelBudgetExhaustedException;
 import com.imageprocessor.exception.ResourceNotFoundException;
 import com.imageprocessor.model.Image;
+import com.imageprocessor.model.ImagePyramidLevel;
 import com.imageprocessor.model.ProcessingConfig;
 import com.imageprocessor.model.ProcessingTask;
+import com.imageprocessor.model.ProcessingVariant;
 import com.imageprocessor.model.User;
 import com.imageprocessor.repository.ProcessingTaskRepository;
 import com.imageprocessor.service.EmailService;
 import com.imageprocessor.service.ProcessingService;
+import com.imageprocessor.service.PyramidService;
 import com.imageprocessor.service.StorageService;
+import com.imageprocessor.util.FileNames;
+import com.imageprocessor.util.ImagePipeline;
 import com.imageprocessor.util.ImageProcessor;
+import com.imageprocessor.util.ImageVariant;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.ImmediateRequeueAmqpException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.awt.*;
+import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Component
 @RequiredArgsConstructor
@@ -29,67 +52,321 @@ public class ImageProcessingConsumer {
     private final StorageService storageService;
     private final ImageProcessor imageProcessor;
     private final EmailService emailService;
+    private final PyramidService pyramidService;
+    private final TaskDispatcher taskDispatcher;
+    private final RetryPolicy retryPolicy;
+    private final WorkerLeases workerLeases;
+
+    // Tarefas de um lote processadas em paralelo; cada imagem ainda usa o pool de blocos internamente
+    @Value("${app.processing.batch.workers:4}")
+    private int batchWorkers;
+
+    private ExecutorService batchProcessingExecutor;
+
+    @PostConstruct
+    public void init() {
+        batchProcessingExecutor = Executors.newFixedThreadPool(batchWorkers);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchProcessingExecutor.shutdown();
+    }
+
+    // Miniaturas chegam em lotes: atualizações de status agrupadas e nenhuma consulta antes do processamento
+    public void processMessages(List<ProcessingTaskMessage> messages) {
+        if (messages.size() == 1) {
+            processMessage(messages.get(0));
+        } else {
+            processBatch(messages);
+        }
+    }
 
-    @RabbitListener(queues = RabbitMQConfig.QUEUE_IMAGE_PROCESSING)
     public void processImage(Long taskId) {
-        log.info("Recebida tarefa de processamento: {}", taskId);
+        if (!claim(taskId)) {
+            return;
+        }
+        ProcessingTask task = processingTaskRepository.findWithDetailsById(taskId)
+                .orElseThrow(() -> new ResourceNotFoundException("ProcessingTask", "id", taskId));
+        run(task);
+    }
+
+    public void processMessage(ProcessingTaskMessage message) {
+        if (message.getVersion() != ProcessingTaskMessage.CURRENT_VERSION) {
+            log.warn("Mensagem da tarefa {} com versão {} desconhecida; carregando do banco",
+                    message.getTaskId(), message.getVersion());
+            processImage(message.getTaskId());
+            return;
+        }
+        log.info("Recebida tarefa de processamento: {}", message.getTaskId());
+        if (claim(message.getTaskId())) {
+            run(toTask(message));
+        }
+    }
 
+    // Reentregas, cópias republicadas e duplicatas são confirmadas e descartadas antes de qualquer leitura ou decodificação
+    private boolean claim(Long taskId) {
+        if (processingService.claim(List.of(taskId)).isEmpty()) {
+            // Cópias antecipadas de uma retentativa também caem aqui; a cópia da fila de espera chega depois do prazo
+            log.info("Tarefa {} ignorada: não está mais pendente ou aguarda a espera da retentativa", taskId);
+            return false;
+        }
+        return true;
+    }
+
+    private void run(ProcessingTask task) {
+        workerLeases.track(List.of(task.getId()));
+        boolean processed;
         try {
-            // Obter a tarefa
-            ProcessingTask task = processingTaskRepository.findById(taskId)
-                    .orElseThrow(() -> new ResourceNotFoundException("ProcessingTask", "id", taskId));
-
-            // Atualizar status para "em processamento"
-            processingService.updateTaskStatus(taskId, ProcessingTask.TaskStatus.PROCESSING, null, null);
-
-            // Obter informações necessárias
-            Image originalImage = task.getOriginalImage();
-            User user = originalImage.getOwner();
-            ProcessingConfig config = task.getProcessingConfig();
-
-            // Obter caminhos dos arquivos
-            Path originalPath = storageService.getFilePath(originalImage.getStoragePath());
-            String resultFilename = UUID.randomUUID().toString() + getFileExtension(originalImage.getOriginalFilename());
-            Path resultPath = storageService.getFilePath(resultFilename);
-
-            // Processar imagem conforme configuração
-            if (config.isResizeEnabled() && config.isGrayscaleEnabled()) {
-                // Primeiro redimensionar, depois converter para escala de cinza
-                Path tempPath = storageService.getFilePath("temp-" + resultFilename);
-                imageProcessor.resizeImage(originalPath, tempPath, config.getResizePercentage());
-                imageProcessor.convertToGrayscale(tempPath, resultPath);
-                storageService.deleteFile("temp-" + resultFilename);
-            } else if (config.isResizeEnabled()) {
-                // Apenas redimensionar
-                imageProcessor.resizeImage(originalPath, resultPath, config.getResizePercentage());
-            } else if (config.isGrayscaleEnabled()) {
-                // Apenas converter para escala de cinza
-                imageProcessor.convertToGrayscale(originalPath, resultPath);
+            processed = processClaimed(task);
+        } finally {
+            workerLeases.release(List.of(task.getId()));
+        }
+        if (!processed) {
+            throw new ImmediateRequeueAmqpException("Tarefa " + task.getId() + " adiada por falta de memória para pixels");
+        }
+    }
+
+    // Processa uma tarefa já assumida (status PROCESSING); devolve false quando ela volta a PENDING por falta de memória
+    public boolean processClaimed(ProcessingTask task) {
+        Long taskId = task.getId();
+        try {
+            execute(task);
+
+            // Atualizar status para "concluído"; só quem encerrou a execução notifica o dono
+            boolean completed = !task.getVariants().isEmpty()
+                    ? processingService.completeVariants(taskId, task.getVariants())
+                    : processingService.updateTaskStatus(taskId, ProcessingTask.TaskStatus.COMPLETED, task.getResultImagePath(), null);
+            if (completed) {
+                notifyOwner(task);
+                log.info("Processamento da tarefa {} concluído com sucesso", taskId);
+            } else {
+                discardResults(task);
+            }
+        } catch (PixelBudgetExhaustedException e) {
+            // Sem memória disponível para decodificar agora: adiar a tarefa em vez de falhar
+            log.warn("Tarefa {} adiada: {}", taskId, e.getMessage());
+            // Se a execução já não era deste nó, a mensagem é descartada em vez de voltar à fila
+            boolean deferred = processingService.updateTaskStatus(taskId, ProcessingTask.TaskStatus.PENDING, null, null);
+            return !deferred;
+        } catch (Exception e) {
+            handleFailure(task, e);
+        }
+        return true;
+    }
+
+    private void processBatch(List<ProcessingTaskMessage> messages) {
+        log.info("Recebido lote de {} tarefas de processamento", messages.size());
+
+        List<ProcessingTask> tasks = new ArrayList<>();
+        for (ProcessingTaskMessage message : messages) {
+            if (message.getVersion() != ProcessingTaskMessage.CURRENT_VERSION) {
+                processMessage(message);
             } else {
-                // Nenhum processamento solicitado
-                throw new IllegalArgumentException("Nenhuma operação de processamento solicitada");
+                tasks.add(toTask(message));
+            }
+        }
+
+        // Apenas as tarefas ainda pendentes são processadas; cópias republicadas são descartadas
+        Set<Long> claimed = new HashSet<>(processingService.claim(tasks.stream().map(ProcessingTask::getId).toList()));
+        tasks.removeIf(task -> !claimed.contains(task.getId()));
+        if (tasks.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Exception> failures = new ConcurrentHashMap<>();
+        workerLeases.track(claimed);
+        try {
+            List<CompletableFuture<Void>> futures = tasks.stream()
+                    .map(task -> CompletableFuture.runAsync(() -> executeInBatch(task, failures), batchProcessingExecutor))
+                    .toList();
+            CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new)).join();
+        } finally {
+            workerLeases.release(claimed);
+        }
+
+        Set<Long> applied = processingService.completeBatch(
+                tasks.stream().filter(task -> !failures.containsKey(task.getId())).toList());
+
+        for (ProcessingTask task : tasks) {
+            if (failures.containsKey(task.getId())) {
+                handleFailure(task, failures.get(task.getId()));
+            } else if (!applied.contains(task.getId())) {
+                discardResults(task);
+            } else if (task.getStatus() == ProcessingTask.TaskStatus.COMPLETED) {
+                notifyOwner(task);
+            } else if (task.getStatus() == ProcessingTask.TaskStatus.PENDING) {
+                // Tarefas sem memória disponível voltam para a fila individualmente, sem devolver o lote inteiro
+                taskDispatcher.requeue(task);
             }
+        }
+        log.info("Lote de {} tarefas processado", tasks.size());
+    }
 
-            // Atualizar status para "concluído"
-            processingService.updateTaskStatus(taskId, ProcessingTask.TaskStatus.COMPLETED, resultFilename, null);
+    // Reconstrói a tarefa a partir da mensagem, sem entidades gerenciadas e sem consultar o banco
+    private ProcessingTask toTask(ProcessingTaskMessage message) {
+        Image image = Image.builder()
+                .id(message.getImageId())
+                .storagePath(message.getStoragePath())
+                .originalFilename(message.getOriginalFilename())
+                .width(message.getWidth())
+                .height(message.getHeight())
+                .owner(User.builder().email(message.getOwnerEmail()).build())
+                .build();
 
-            // Enviar e-mail de notificação
-            String resultUrl = ""; // Gerar URL para acesso ao resultado
-            emailService.sendProcessingCompletedEmail(user.getEmail(), originalImage.getOriginalFilename(), resultUrl);
+        ProcessingTask task = ProcessingTask.builder()
+                .id(message.getTaskId())
+                .originalImage(image)
+                .status(ProcessingTask.TaskStatus.PENDING)
+                .priority(message.getPriority())
+                .build();
 
-            log.info("Processamento da tarefa {} concluído com sucesso", taskId);
+        ProcessingTaskMessage.Config config = message.getConfig();
+        if (config != null) {
+            task.setProcessingConfig(ProcessingConfig.builder()
+                    .resizeEnabled(config.isResizeEnabled())
+                    .resizePercentage(config.getResizePercentage())
+                    .resizeMethod(config.getResizeMethod())
+                    .grayscaleEnabled(config.isGrayscaleEnabled())
+                    .build());
+        }
+        if (message.getVariants() != null) {
+            message.getVariants().forEach(variant -> task.getVariants().add(ProcessingVariant.builder()
+                    .id(variant.getId())
+                    .name(variant.getName())
+                    .resizePercentage(variant.getResizePercentage())
+                    .resizeMethod(variant.getResizeMethod())
+                    .grayscaleEnabled(variant.isGrayscaleEnabled())
+                    .build()));
+        }
+        return task;
+    }
+
+    private void executeInBatch(ProcessingTask task, Map<Long, Exception> failures) {
+        try {
+            execute(task);
+            task.setStatus(ProcessingTask.TaskStatus.COMPLETED);
+        } catch (PixelBudgetExhaustedException e) {
+            log.warn("Tarefa {} adiada: {}", task.getId(), e.getMessage());
+            task.setStatus(ProcessingTask.TaskStatus.PENDING);
         } catch (Exception e) {
-            log.error("Erro ao processar imagem para tarefa: {}", taskId, e);
-            // Atualizar status para "falha"
-            processingService.updateTaskStatus(taskId, ProcessingTask.TaskStatus.FAILED, null, e.getMessage());
+            // Tratada depois do lote, tarefa a tarefa, como no consumo individual
+            failures.put(task.getId(), e);
         }
     }
 
-    private String getFileExtension(String filename) {
-        int lastIndex = filename.lastIndexOf('.');
-        if (lastIndex == -1) {
-            return ".jpg"; // Padrão se não encontrar extensão
+    // Falhas transitórias voltam com espera exponencial até o limite de tentativas; as permanentes não são repetidas
+    private void handleFailure(ProcessingTask task, Exception e) {
+        boolean permanent = retryPolicy.isPermanent(e);
+        Optional<ProcessingTask> recorded = processingService.recordFailure(task.getId(), e.getMessage(), permanent);
+        if (recorded.isEmpty()) {
+            return;
+        }
+        ProcessingTask updated = recorded.get();
+        if (updated.getStatus() == ProcessingTask.TaskStatus.PENDING) {
+            log.warn("Tarefa {} falhou na tentativa {} de {}; nova tentativa em {} ms: {}", task.getId(),
+                    updated.getAttempts(), updated.getMaxAttempts(), retryPolicy.delayFor(updated.getAttempts()), e.toString());
+            taskDispatcher.retry(task, updated.getAttempts());
+        } else {
+            log.error("Erro ao processar imagem para tarefa: {}", task.getId(), e);
+            taskDispatcher.deadLetter(task, updated.getAttempts(), e.getMessage(), permanent);
+        }
+    }
+
+    // Executa o processamento e registra os resultados na própria tarefa, sem gravar no banco
+    private void execute(ProcessingTask task) throws IOException {
+        Image originalImage = task.getOriginalImage();
+        ProcessingConfig config = task.getProcessingConfig();
+
+        // Obter caminhos dos arquivos
+        Path originalPath = storageService.getFilePath(originalImage.getStoragePath());
+
+        if (!task.getVariants().isEmpty()) {
+            processVariants(task, originalPath);
+            return;
+        }
+
+        String resultFilename = UUID.randomUUID().toString() + FileNames.extension(originalImage.getOriginalFilename());
+        Path resultPath = storageService.newFilePath(resultFilename);
+
+        // Partir do menor nível da pirâmide que ainda cobre o tamanho pedido, se houver
+        ImagePipeline pipeline = buildPipeline(config);
+        int percentage = config.isResizeEnabled() ? config.getResizePercentage() : 100;
+        Optional<ImagePyramidLevel> level = pyramidService.selectLevel(originalImage, percentage);
+        if (level.isPresent()) {
+            originalPath = storageService.getFilePath(level.get().getStoragePath());
+            pipeline.originalSize(new Dimension(originalImage.getWidth(), originalImage.getHeight()));
+        }
+
+        // Processar imagem conforme configuração, com uma única decodificação e codificação
+        imageProcessor.process(originalPath, resultPath, pipeline);
+        task.setResultImagePath(resultFilename);
+    }
+
+    // Arquivos gerados por uma execução cujo resultado não foi registrado
+    private void discardResults(ProcessingTask task) {
+        if (task.getResultImagePath() != null) {
+            storageService.deleteFile(task.getResultImagePath());
+        }
+        task.getVariants().stream()
+                .map(ProcessingVariant::getResultImagePath)
+                .filter(Objects::nonNull)
+                .forEach(storageService::deleteFile);
+    }
+
+    private void notifyOwner(ProcessingTask task) {
+        // Enviar e-mail de notificação
+        Image originalImage = task.getOriginalImage();
+        User user = originalImage.getOwner();
+        String resultUrl = ""; // Gerar URL para acesso ao resultado
+        emailService.sendProcessingCompletedEmail(user.getEmail(), originalImage.getOriginalFilename(), resultUrl);
+    }
+
+    private void processVariants(ProcessingTask task, Path originalPath) throws IOException {
+        // Uma decodificação para todas as variantes; todas as saídas são gravadas nesta mesma execução
+        String extension = FileNames.extension(task.getOriginalImage().getOriginalFilename());
+        List<ProcessingVariant> variants = task.getVariants();
+        List<String> filenames = new ArrayList<>();
+        List<ImageVariant> outputs = new ArrayList<>();
+        for (ProcessingVariant variant : variants) {
+            String filename = UUID.randomUUID().toString() + extension;
+            filenames.add(filename);
+            outputs.add(new ImageVariant(variant.getResizePercentage(), variant.getResizeMethod(),
+                    variant.isGrayscaleEnabled(), storageService.newFilePath(filename)));
+        }
+
+        // A maior variante define o nível da pirâmide que serve de origem para todas
+        Image originalImage = task.getOriginalImage();
+        int largest = variants.stream().mapToInt(ProcessingVariant::getResizePercentage).max().orElse(100);
+        Optional<ImagePyramidLevel> level = pyramidService.selectLevel(originalImage, largest);
+        Path sourcePath = level.map(l -> storageService.getFilePath(l.getStoragePath())).orElse(originalPath);
+        Dimension originalSize = level.isPresent()
+                ? new Dimension(originalImage.getWidth(), originalImage.getHeight())
+                : null;
+
+        List<Dimension> sizes = imageProcessor.processVariants(sourcePath, originalSize, outputs);
+
+        for (int i = 0; i < variants.size(); i++) {
+            ProcessingVariant variant = variants.get(i);
+            variant.setResultImagePath(filenames.get(i));
+            variant.setWidth(sizes.get(i).width);
+            variant.setHeight(sizes.get(i).height);
+        }
+    }
+
+    private ImagePipeline buildPipeline(ProcessingConfig config) {
+        ImagePipeline pipeline = ImagePipeline.create();
+        // Redimensionar primeiro para que a conversão de cor trabalhe sobre menos pixels
+        if (config.isResizeEnabled()) {
+            pipeline.resize(config.getResizePercentage(), config.getResizeMethod());
+        }
+        if (config.isGrayscaleEnabled()) {
+            pipeline.grayscale();
+        }
+        if (pipeline.isEmpty()) {
+            // Nenhum processamento solicitado
+            throw new IllegalArgumentException("Nenhuma operação de processamento solicitada");
         }
-        return filename.substring(lastIndex);
+        return pipeline;
     }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.imageprocessor.queue;
+
+import com.imageprocessor.config.RabbitMQConfig;
+import com.imageprocessor.dto.ProcessingTaskMessage;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Entrada dos workers no modo rabbit; no modo database o DatabaseQueueWorker entrega as tarefas ao mesmo consumidor
+@Component
+@ConditionalOnProperty(name = "app.processing.dispatcher", havingValue = "rabbit", matchIfMissing = true)
+@RequiredArgsConstructor
+public class ImageProcessingListener {
+
+    private final ImageProcessingConsumer imageProcessingConsumer;
+
+    @RabbitListener(id = RabbitMQConfig.LISTENER_IMAGE_PROCESSING_SMALL, queues = RabbitMQConfig.QUEUE_IMAGE_PROCESSING_SMALL,
+            containerFactory = RabbitMQConfig.BATCH_CONTAINER_FACTORY,
+            concurrency = "${app.processing.lanes.small.concurrency:4}-${app.processing.lanes.small.max-concurrency:8}")
+    public void processSmallImages(List<ProcessingTaskMessage> messages) {
+        imageProcessingConsumer.processMessages(messages);
+    }
+
+    @RabbitListener(id = RabbitMQConfig.LISTENER_IMAGE_PROCESSING_MEDIUM, queues = RabbitMQConfig.QUEUE_IMAGE_PROCESSING_MEDIUM,
+            containerFactory = RabbitMQConfig.IMAGE_CONTAINER_FACTORY,
+            concurrency = "${app.processing.lanes.medium.concurrency:2}-${app.processing.lanes.medium.max-concurrency:4}")
+    public void processMediumImage(ProcessingTaskMessage message) {
+        imageProcessingConsumer.processMessage(message);
+    }
+
+    @RabbitListener(id = RabbitMQConfig.LISTENER_IMAGE_PROCESSING_LARGE, queues = RabbitMQConfig.QUEUE_IMAGE_PROCESSING_LARGE,
+            containerFactory = RabbitMQConfig.IMAGE_CONTAINER_FACTORY,
+            concurrency = "${app.processing.lanes.large.concurrency:1}-${app.processing.lanes.large.max-concurrency:2}")
+    public void processLargeImage(ProcessingTaskMessage message) {
+        imageProcessingConsumer.processMessage(message);
+    }
+
+    // A fila única anterior (mensagens da versão 1, apenas o id) continua sendo consumida até esvaziar
+    @RabbitListener(queues = RabbitMQConfig.QUEUE_IMAGE_PROCESSING, containerFactory = RabbitMQConfig.IMAGE_CONTAINER_FACTORY)
+    public void processImage(Long taskId) {
+        imageProcessingConsumer.processImage(taskId);
+    }
+}
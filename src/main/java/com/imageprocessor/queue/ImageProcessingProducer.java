@@ -1,24 +1,138 @@
 package com.imageprocessor.queue;
 
 import com.imageprocessor.config.RabbitMQConfig;
+import com.imageprocessor.dto.ProcessingTaskMessage;
+import com.imageprocessor.model.Image;
+import com.imageprocessor.model.ProcessingConfig;
+import com.imageprocessor.model.ProcessingTask;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import java.util.Date;
+import java.util.List;
+
 @Component
+@ConditionalOnProperty(name = "app.processing.dispatcher", havingValue = "rabbit", matchIfMissing = true)
 @RequiredArgsConstructor
 @Slf4j
 public class ImageProcessingProducer {
 
     private final RabbitTemplate rabbitTemplate;
+    private final TaskCostEstimator taskCostEstimator;
+
+    @Value("${app.processing.outbox.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMillis;
 
-    public void sendProcessingTask(Long taskId) {
-        log.info("Enviando tarefa para processamento: {}", taskId);
+    public void sendProcessingTask(ProcessingTask task) {
+        // Tarefas pequenas não ficam presas atrás de imagens grandes na mesma fila
+        sendProcessingTask(toMessage(task), taskCostEstimator.selectLane(task));
+    }
+
+    public void sendProcessingTask(ProcessingTaskMessage message, ProcessingLane lane) {
+        log.info("Enviando tarefa para processamento: {} (faixa {}, prioridade {})",
+                message.getTaskId(), lane, message.getPriority());
         rabbitTemplate.convertAndSend(
                 RabbitMQConfig.EXCHANGE_IMAGE_PROCESSING,
-                RabbitMQConfig.ROUTING_KEY_IMAGE_PROCESSING,
-                taskId
+                lane.getRoutingKey(),
+                message,
+                amqpMessage -> {
+                    amqpMessage.getMessageProperties().setPriority(message.getPriority());
+                    return amqpMessage;
+                }
+        );
+    }
+
+    // Publica todas as mensagens no mesmo canal e espera uma única confirmação do broker para o lote
+    public void sendConfirmed(List<OutboundTask> tasks) {
+        rabbitTemplate.invoke(operations -> {
+            for (OutboundTask task : tasks) {
+                operations.convertAndSend(
+                        RabbitMQConfig.EXCHANGE_IMAGE_PROCESSING,
+                        task.lane().getRoutingKey(),
+                        task.message(),
+                        amqpMessage -> {
+                            amqpMessage.getMessageProperties().setPriority(task.message().getPriority());
+                            return amqpMessage;
+                        });
+            }
+            operations.waitForConfirmsOrDie(confirmTimeoutMillis);
+            return null;
+        });
+        log.info("{} tarefas enviadas para processamento com confirmação do broker", tasks.size());
+    }
+
+    // Espera na fila do nível indicado e volta para a mesma faixa quando o TTL expira
+    public void sendRetry(ProcessingTaskMessage message, ProcessingLane lane, int level) {
+        rabbitTemplate.convertAndSend(
+                RabbitMQConfig.EXCHANGE_IMAGE_PROCESSING_RETRY,
+                lane.getRoutingKey(),
+                message,
+                amqpMessage -> {
+                    amqpMessage.getMessageProperties().setPriority(message.getPriority());
+                    amqpMessage.getMessageProperties().setHeader(RabbitMQConfig.HEADER_RETRY_LEVEL, String.valueOf(level));
+                    return amqpMessage;
+                }
         );
     }
-}
\ No newline at end of file
+
+    public void sendToDeadLetter(ProcessingTaskMessage message, ProcessingLane lane, int attempts, String error,
+                                 boolean permanent) {
+        rabbitTemplate.convertAndSend(
+                RabbitMQConfig.EXCHANGE_IMAGE_PROCESSING_DEAD_LETTER,
+                lane.getRoutingKey(),
+                message,
+                amqpMessage -> {
+                    MessageProperties properties = amqpMessage.getMessageProperties();
+                    properties.setPriority(message.getPriority());
+                    properties.setTimestamp(new Date());
+                    properties.setHeader(RabbitMQConfig.HEADER_TASK_ID, message.getTaskId());
+                    properties.setHeader(RabbitMQConfig.HEADER_ATTEMPTS, attempts);
+                    properties.setHeader(RabbitMQConfig.HEADER_ERROR, error);
+                    properties.setHeader(RabbitMQConfig.HEADER_PERMANENT_FAILURE, permanent);
+                    return amqpMessage;
+                }
+        );
+        log.warn("Tarefa {} enviada para a fila de mensagens mortas após {} tentativas", message.getTaskId(), attempts);
+    }
+
+    // Exige a imagem, o dono, a configuração e as variantes carregados
+    public ProcessingTaskMessage toMessage(ProcessingTask task) {
+        Image image = task.getOriginalImage();
+        ProcessingConfig config = task.getProcessingConfig();
+
+        return ProcessingTaskMessage.builder()
+                .version(ProcessingTaskMessage.CURRENT_VERSION)
+                .taskId(task.getId())
+                .imageId(image.getId())
+                .storagePath(image.getStoragePath())
+                .originalFilename(image.getOriginalFilename())
+                .width(image.getWidth())
+                .height(image.getHeight())
+                .ownerEmail(image.getOwner().getEmail())
+                .priority(task.getPriority())
+                .config(config == null ? null : ProcessingTaskMessage.Config.builder()
+                        .resizeEnabled(config.isResizeEnabled())
+                        .resizePercentage(config.getResizePercentage())
+                        .resizeMethod(config.getResizeMethod())
+                        .grayscaleEnabled(config.isGrayscaleEnabled())
+                        .build())
+                .variants(task.getVariants().stream()
+                        .map(variant -> ProcessingTaskMessage.Variant.builder()
+                                .id(variant.getId())
+                                .name(variant.getName())
+                                .resizePercentage(variant.getResizePercentage())
+                                .resizeMethod(variant.getResizeMethod())
+                                .grayscaleEnabled(variant.isGrayscaleEnabled())
+                                .build())
+                        .toList())
+                .build();
+    }
+
+    public record OutboundTask(ProcessingTaskMessage message, ProcessingLane lane) {
+    }
+}
@@ -0,0 +1,152 @@
+package com.imageprocessor.queue;
+
+import com.imageprocessor.util.PixelBudget;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.EnumMap;
+import java.util.Map;
+
+// Ajusta os consumidores de cada faixa entre concurrency e max-concurrency conforme fila, CPU e orçamento de pixels.
+// Desligado, vale o escalonamento por atividade do próprio container do Spring dentro dos mesmos limites
+@Component
+@ConditionalOnProperty(name = "app.processing.dispatcher", havingValue = "rabbit", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class ListenerScaler {
+
+    private final RabbitListenerEndpointRegistry rabbitListenerEndpointRegistry;
+    private final AmqpAdmin amqpAdmin;
+    private final PixelBudget pixelBudget;
+
+    @Value("${app.processing.listener.adaptive.enabled:true}")
+    private boolean enabled;
+
+    // Acima desta carga de CPU (0 a 1) nenhuma faixa ganha consumidores e todas perdem um por ciclo
+    @Value("${app.processing.listener.adaptive.cpu-high:0.85}")
+    private double cpuHigh;
+
+    // Fração livre do orçamento de pixels abaixo da qual os consumidores são reduzidos
+    @Value("${app.processing.listener.adaptive.budget-low:0.2}")
+    private double budgetLow;
+
+    // Mensagens prontas por consumidor que justificam mais um consumidor
+    @Value("${app.processing.listener.adaptive.backlog-per-consumer:2}")
+    private int backlogPerConsumer;
+
+    @Value("${app.processing.lanes.small.concurrency:4}")
+    private int smallConcurrency;
+
+    @Value("${app.processing.lanes.small.max-concurrency:8}")
+    private int smallMaxConcurrency;
+
+    @Value("${app.processing.lanes.medium.concurrency:2}")
+    private int mediumConcurrency;
+
+    @Value("${app.processing.lanes.medium.max-concurrency:4}")
+    private int mediumMaxConcurrency;
+
+    @Value("${app.processing.lanes.large.concurrency:1}")
+    private int largeConcurrency;
+
+    @Value("${app.processing.lanes.large.max-concurrency:2}")
+    private int largeMaxConcurrency;
+
+    private final Map<ProcessingLane, Integer> consumers = new EnumMap<>(ProcessingLane.class);
+
+    @Scheduled(fixedDelayString = "${app.processing.listener.adaptive.interval-ms:5000}")
+    public void adjust() {
+        if (!enabled) {
+            return;
+        }
+
+        double cpu = cpuLoad();
+        double freeBudget = (double) pixelBudget.getAvailableBytes() / pixelBudget.getTotalBytes();
+        boolean saturated = cpu > cpuHigh || freeBudget < budgetLow;
+
+        for (ProcessingLane lane : ProcessingLane.values()) {
+            MessageListenerContainer listener = rabbitListenerEndpointRegistry.getListenerContainer(lane.getListenerId());
+            if (!(listener instanceof SimpleMessageListenerContainer container) || !container.isRunning()) {
+                continue;
+            }
+
+            int depth;
+            try {
+                QueueInformation info = amqpAdmin.getQueueInfo(lane.getQueue());
+                depth = info != null ? info.getMessageCount() : 0;
+            } catch (AmqpException e) {
+                log.debug("Broker indisponível, ajuste de consumidores adiado: {}", e.getMessage());
+                return;
+            }
+
+            int min = minConsumers(lane);
+            int max = Math.max(min, maxConsumers(lane));
+            int current = consumers.getOrDefault(lane, min);
+            int target = current;
+            if (saturated || depth == 0) {
+                target = current - 1;
+            } else if (depth > current * backlogPerConsumer) {
+                target = current + 1;
+            }
+            target = Math.max(min, Math.min(max, target));
+
+            if (!consumers.containsKey(lane) || target != current) {
+                resize(container, current, target);
+                consumers.put(lane, target);
+                if (target != current) {
+                    log.info("Faixa {}: {} -> {} consumidores (fila {}, CPU {}%, orçamento livre {}%)", lane, current,
+                            target, depth, Math.round(cpu * 100), Math.round(freeBudget * 100));
+                }
+            }
+        }
+    }
+
+    // Máximo fixado no alvo para que o escalonamento por atividade do container não passe por cima do ajuste
+    private void resize(SimpleMessageListenerContainer container, int current, int target) {
+        if (target > current) {
+            container.setMaxConcurrentConsumers(target);
+            container.setConcurrentConsumers(target);
+        } else {
+            container.setConcurrentConsumers(target);
+            container.setMaxConcurrentConsumers(target);
+        }
+    }
+
+    private int minConsumers(ProcessingLane lane) {
+        return switch (lane) {
+            case SMALL -> smallConcurrency;
+            case MEDIUM -> mediumConcurrency;
+            case LARGE -> largeConcurrency;
+        };
+    }
+
+    private int maxConsumers(ProcessingLane lane) {
+        return switch (lane) {
+            case SMALL -> smallMaxConcurrency;
+            case MEDIUM -> mediumMaxConcurrency;
+            case LARGE -> largeMaxConcurrency;
+        };
+    }
+
+    private double cpuLoad() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean sun && sun.getCpuLoad() >= 0) {
+            return sun.getCpuLoad();
+        }
+        // Sem a medida da JVM, média de carga do sistema por núcleo
+        double average = os.getSystemLoadAverage();
+        return average >= 0 ? average / os.getAvailableProcessors() : 0;
+    }
+}
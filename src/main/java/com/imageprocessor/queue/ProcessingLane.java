@@ -0,0 +1,35 @@
+package com.imageprocessor.queue;
+
+import com.imageprocessor.config.RabbitMQConfig;
+
+public enum ProcessingLane {
+
+    SMALL(RabbitMQConfig.QUEUE_IMAGE_PROCESSING_SMALL, RabbitMQConfig.ROUTING_KEY_IMAGE_PROCESSING_SMALL,
+            RabbitMQConfig.LISTENER_IMAGE_PROCESSING_SMALL),
+    MEDIUM(RabbitMQConfig.QUEUE_IMAGE_PROCESSING_MEDIUM, RabbitMQConfig.ROUTING_KEY_IMAGE_PROCESSING_MEDIUM,
+            RabbitMQConfig.LISTENER_IMAGE_PROCESSING_MEDIUM),
+    LARGE(RabbitMQConfig.QUEUE_IMAGE_PROCESSING_LARGE, RabbitMQConfig.ROUTING_KEY_IMAGE_PROCESSING_LARGE,
+            RabbitMQConfig.LISTENER_IMAGE_PROCESSING_LARGE);
+
+    private final String queue;
+    private final String routingKey;
+    private final String listenerId;
+
+    ProcessingLane(String queue, String routingKey, String listenerId) {
+        this.queue = queue;
+        this.routingKey = routingKey;
+        this.listenerId = listenerId;
+    }
+
+    public String getQueue() {
+        return queue;
+    }
+
+    public String getRoutingKey() {
+        return routingKey;
+    }
+
+    public String getListenerId() {
+        return listenerId;
+    }
+}
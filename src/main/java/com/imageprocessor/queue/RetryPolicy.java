@@ -0,0 +1,46 @@
+package com.imageprocessor.queue;
+
+import com.imageprocessor.exception.InvalidImageException;
+import com.imageprocessor.exception.ResourceNotFoundException;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Classificação de falhas e espera entre tentativas (dobra a cada nível de fila de retentativa)
+@Component
+public class RetryPolicy {
+
+    // Tentativas por tarefa, incluindo a primeira; gravado na tarefa quando ela é criada
+    @Getter
+    @Value("${app.processing.retry.max-attempts:4}")
+    private int maxAttempts;
+
+    @Value("${app.processing.retry.initial-delay-ms:5000}")
+    private long initialDelayMillis;
+
+    // Filas de espera declaradas no broker; tentativas além do último nível reutilizam a maior espera
+    @Getter
+    @Value("${app.processing.retry.levels:5}")
+    private int levels;
+
+    // Falhas que se repetiriam em qualquer nova tentativa vão direto para a fila de mensagens mortas.
+    // Arquivo ausente não entra: a pirâmide pode ter removido o nível e a migração de disposição pode estar movendo o arquivo
+    public boolean isPermanent(Throwable error) {
+        return error instanceof InvalidImageException
+                || error instanceof IllegalArgumentException
+                || error instanceof ResourceNotFoundException;
+    }
+
+    // Nível da fila de espera para a tentativa que falhou (1 = primeira falha)
+    public int levelFor(int failedAttempts) {
+        return Math.max(1, Math.min(levels, failedAttempts));
+    }
+
+    public long delayForLevel(int level) {
+        return initialDelayMillis << (level - 1);
+    }
+
+    public long delayFor(int failedAttempts) {
+        return delayForLevel(levelFor(failedAttempts));
+    }
+}
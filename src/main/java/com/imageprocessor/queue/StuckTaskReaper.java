@@ -0,0 +1,141 @@
+package com.imageprocessor.queue;
+
+import com.imageprocessor.model.ProcessingTask;
+import com.imageprocessor.repository.ProcessingTaskRepository;
+import com.imageprocessor.service.ProcessingService;
+import com.imageprocessor.service.SchedulerLockService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+// Retoma tarefas de workers que morreram (concessão vencida), tarefas pendentes cuja mensagem se perdeu
+// e tarefas agrupadas cuja líder terminou sem entregá-las.
+// Agendado em todos os nós; a trava em banco faz com que só um aja por ciclo
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StuckTaskReaper {
+
+    private static final String LOCK_NAME = "stuck-task-reaper";
+
+    private final ProcessingTaskRepository processingTaskRepository;
+    private final TaskDispatcher taskDispatcher;
+    private final SchedulerLockService schedulerLockService;
+    private final ProcessingService processingService;
+    private final WorkerLeases workerLeases;
+
+    @Value("${app.processing.reaper.interval-ms:60000}")
+    private long intervalMillis;
+
+    @Value("${app.processing.reaper.batch-size:100}")
+    private int batchSize;
+
+    // Limite de lotes por ciclo para que um acúmulo grande não monopolize o nó que está com a trava
+    @Value("${app.processing.reaper.max-batches:10}")
+    private int maxBatches;
+
+    // Pendentes sem atualização há mais tempo que isso são reenviadas
+    @Value("${app.processing.reaper.pending-stale-ms:600000}")
+    private long pendingStaleMillis;
+
+    // Tarefas em processamento sem concessão (gravadas antes delas) são consideradas paradas depois disso
+    @Value("${app.processing.lease.duration-ms:60000}")
+    private long leaseMillis;
+
+    @Scheduled(fixedDelayString = "${app.processing.reaper.interval-ms:60000}",
+            initialDelayString = "${app.processing.reaper.interval-ms:60000}")
+    public void reap() {
+        // A trava dura quase um intervalo inteiro: os outros nós pulam este ciclo
+        if (!schedulerLockService.tryAcquire(LOCK_NAME, workerLeases.getNodeId(),
+                Duration.ofMillis(intervalMillis * 9 / 10))) {
+            return;
+        }
+
+        int expired = 0;
+        int stale = 0;
+        int orphaned = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            int found = requeueExpiredLeases();
+            expired += found;
+            if (found < batchSize) {
+                break;
+            }
+        }
+        for (int batch = 0; batch < maxBatches; batch++) {
+            int found = requeueStalePending();
+            stale += found;
+            if (found < batchSize) {
+                break;
+            }
+        }
+        for (int batch = 0; batch < maxBatches; batch++) {
+            int found = requeueOrphanedFollowers();
+            orphaned += found;
+            if (found < batchSize) {
+                break;
+            }
+        }
+        if (expired > 0 || stale > 0 || orphaned > 0) {
+            log.info("Reaper: {} tarefas com concessão vencida, {} pendentes paradas e {} agrupadas órfãs resolvidas",
+                    expired, stale, orphaned);
+        }
+    }
+
+    private int requeueExpiredLeases() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime staleBefore = now.minus(leaseMillis, ChronoUnit.MILLIS);
+        List<Long> ids = processingTaskRepository.findExpiredLeaseIds(ProcessingTask.TaskStatus.PROCESSING, now,
+                staleBefore, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        // Confirmado antes da publicação para que o consumidor encontre as tarefas pendentes
+        processingTaskRepository.releaseExpiredLeases(ids, ProcessingTask.TaskStatus.PROCESSING,
+                ProcessingTask.TaskStatus.PENDING, now, staleBefore);
+        requeue(ids);
+        return ids.size();
+    }
+
+    private int requeueStalePending() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = processingTaskRepository.findStuckTaskIds(ProcessingTask.TaskStatus.PENDING,
+                now.minus(pendingStaleMillis, ChronoUnit.MILLIS), PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        processingTaskRepository.touch(ids, ProcessingTask.TaskStatus.PENDING, now);
+        requeue(ids);
+        return ids.size();
+    }
+
+    private int requeueOrphanedFollowers() {
+        List<Long> ids = processingTaskRepository.findOrphanedFollowerIds(ProcessingTask.TaskStatus.PENDING,
+                List.of(ProcessingTask.TaskStatus.PENDING, ProcessingTask.TaskStatus.PROCESSING), PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        // Só as que não têm resultado registrado nem outra líder ativa voltam a ser executadas
+        requeue(processingService.resolveOrphanedFollowers(ids));
+        return ids.size();
+    }
+
+    // Uma cópia a mais na fila é inofensiva: o consumidor descarta a que chegar depois de a tarefa ser assumida
+    private void requeue(List<Long> ids) {
+        for (ProcessingTask task : processingTaskRepository.findWithDetailsByIdIn(ids)) {
+            if (task.getStatus() == ProcessingTask.TaskStatus.PENDING && !taskDispatcher.isQueued(task.getId())) {
+                taskDispatcher.requeue(task);
+            }
+        }
+    }
+}
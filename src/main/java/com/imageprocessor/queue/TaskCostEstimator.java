@@ -0,0 +1,74 @@
+package com.imageprocessor.queue;
+
+import com.imageprocessor.model.Image;
+import com.imageprocessor.model.ProcessingConfig;
+import com.imageprocessor.model.ProcessingTask;
+import com.imageprocessor.model.ProcessingVariant;
+import com.imageprocessor.util.ResizeMethod;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class TaskCostEstimator {
+
+    // Decodificação e codificação, em unidades por megapixel da imagem original
+    private static final double CODEC_COST = 1.0;
+    private static final double GRAYSCALE_COST = 0.25;
+
+    @Value("${app.processing.resize.default-method:SCALR}")
+    private ResizeMethod defaultResizeMethod;
+
+    @Value("${app.processing.lanes.small-max-cost:10}")
+    private double smallMaxCost;
+
+    @Value("${app.processing.lanes.medium-max-cost:100}")
+    private double mediumMaxCost;
+
+    public ProcessingLane selectLane(ProcessingTask task) {
+        Double cost = estimate(task);
+        if (cost == null) {
+            // Imagens sem dimensões registradas (enviadas antes da leitura do cabeçalho) vão para a faixa intermediária
+            return ProcessingLane.MEDIUM;
+        }
+        if (cost <= smallMaxCost) {
+            return ProcessingLane.SMALL;
+        }
+        return cost <= mediumMaxCost ? ProcessingLane.MEDIUM : ProcessingLane.LARGE;
+    }
+
+    // Custo estimado em megapixels × peso das operações; null quando as dimensões da imagem são desconhecidas
+    public Double estimate(ProcessingTask task) {
+        Image image = task.getOriginalImage();
+        if (image.getWidth() == null || image.getHeight() == null) {
+            return null;
+        }
+        double megapixels = (double) image.getWidth() * image.getHeight() / 1_000_000;
+
+        double weight = CODEC_COST;
+        if (!task.getVariants().isEmpty()) {
+            // Uma decodificação compartilhada e uma redução e codificação por variante
+            for (ProcessingVariant variant : task.getVariants()) {
+                weight += resizeCost(variant.getResizeMethod()) + (variant.isGrayscaleEnabled() ? GRAYSCALE_COST : 0);
+            }
+        } else {
+            ProcessingConfig config = task.getProcessingConfig();
+            if (config.isResizeEnabled()) {
+                weight += resizeCost(config.getResizeMethod());
+            }
+            if (config.isGrayscaleEnabled()) {
+                weight += GRAYSCALE_COST;
+            }
+        }
+        return megapixels * weight;
+    }
+
+    private double resizeCost(ResizeMethod method) {
+        ResizeMethod selected = method != null ? method : defaultResizeMethod;
+        // Proporcional ao raio do filtro; o SCALR faz reduções bilineares sucessivas
+        return switch (selected) {
+            case SCALR, MITCHELL -> 1.0;
+            case BILINEAR -> 0.5;
+            case LANCZOS3 -> 1.5;
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package com.imageprocessor.queue;
+
+import com.imageprocessor.dto.DeadLetterDTO;
+import com.imageprocessor.dto.TenantQueueStatsDTO;
+import com.imageprocessor.model.ProcessingTask;
+
+import java.util.List;
+
+// Caminho entre a criação da tarefa e os workers; implementação escolhida por app.processing.dispatcher (rabbit ou database)
+public interface TaskDispatcher {
+
+    // Chamado na transação que cria a tarefa
+    void submit(ProcessingTask task, Long userId, int weight);
+
+    // Tarefa ainda retida pelo despachante, sem ter chegado aos workers
+    boolean isQueued(Long taskId);
+
+    // Reenvia uma tarefa pendente cuja entrega pode ter se perdido ou ficado para trás
+    void requeue(ProcessingTask task);
+
+    // Nova tentativa após falha transitória; a tarefa já voltou a PENDING com o horário da próxima tentativa
+    void retry(ProcessingTask task, int failedAttempts);
+
+    // Tarefa já marcada como FAILED, por falha permanente ou tentativas esgotadas
+    void deadLetter(ProcessingTask task, int attempts, String error, boolean permanent);
+
+    List<DeadLetterDTO> getDeadLetters(int limit);
+
+    int replayDeadLetters(int limit);
+
+    List<TenantQueueStatsDTO> getStats();
+}
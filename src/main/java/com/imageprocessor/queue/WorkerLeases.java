@@ -0,0 +1,98 @@
+package com.imageprocessor.queue;
+
+import com.imageprocessor.model.ProcessingTask;
+import com.imageprocessor.repository.ProcessingTaskRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Concessões das tarefas em execução neste nó: renovadas por heartbeat enquanto o worker está vivo
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class WorkerLeases {
+
+    private final ProcessingTaskRepository processingTaskRepository;
+
+    @Value("${app.processing.lease.duration-ms:60000}")
+    private long leaseMillis;
+
+    @Value("${app.processing.lease.heartbeat-ms:15000}")
+    private long heartbeatMillis;
+
+    @Getter
+    private final String nodeId = hostname() + "-" + UUID.randomUUID().toString().substring(0, 8);
+
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    // Thread própria: no agendador compartilhado um job demorado atrasaria a renovação e as concessões venceriam
+    // com as tarefas ainda em execução
+    private ThreadPoolTaskScheduler heartbeatScheduler;
+
+    @PostConstruct
+    public void init() {
+        heartbeatScheduler = new ThreadPoolTaskScheduler();
+        heartbeatScheduler.setPoolSize(1);
+        heartbeatScheduler.setThreadNamePrefix("lease-heartbeat-");
+        heartbeatScheduler.initialize();
+        heartbeatScheduler.scheduleWithFixedDelay(this::heartbeat, Duration.ofMillis(heartbeatMillis));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeatScheduler.shutdown();
+    }
+
+    public LocalDateTime leaseUntil(LocalDateTime now) {
+        return now.plus(leaseMillis, ChronoUnit.MILLIS);
+    }
+
+    public void track(Collection<Long> taskIds) {
+        inFlight.addAll(taskIds);
+    }
+
+    public void release(Collection<Long> taskIds) {
+        inFlight.removeAll(taskIds);
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    public void heartbeat() {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(inFlight);
+        int renewed = processingTaskRepository.extendLeases(ids, nodeId, ProcessingTask.TaskStatus.PROCESSING,
+                leaseUntil(LocalDateTime.now()));
+        if (renewed < ids.size()) {
+            // Tarefas recém-concluídas ou concessões vencidas já retomadas por outro nó
+            log.debug("{} de {} concessões não renovadas no nó {}", ids.size() - renewed, ids.size(), nodeId);
+        }
+    }
+
+    private static String hostname() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "node";
+        }
+    }
+}
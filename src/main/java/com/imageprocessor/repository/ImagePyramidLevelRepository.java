@@ -0,0 +1,35 @@
+package com.imageprocessor.repository;
+
+import com.imageprocessor.model.ImagePyramidLevel;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ImagePyramidLevelRepository extends JpaRepository<ImagePyramidLevel, Long> {
+    List<ImagePyramidLevel> findByImage_IdOrderByWidthAsc(Long imageId);
+    // Candidatos ao descarte: só os fora da janela de carência, em páginas, dos usados há mais tempo para os mais recentes
+    List<ImagePyramidLevel> findByLastUsedAtBeforeOrderByLastUsedAtAsc(LocalDateTime usedBefore, Pageable pageable);
+    boolean existsByImage_Id(Long imageId);
+
+    @Query("SELECT COALESCE(SUM(l.size), 0) FROM ImagePyramidLevel l")
+    long sumSize();
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ImagePyramidLevel l SET l.lastUsedAt = :usedAt WHERE l.id = :id")
+    int markUsed(@Param("id") Long id, @Param("usedAt") LocalDateTime usedAt);
+
+    // Exclusão condicional: um nível escolhido por selectLevel desde a leitura dos candidatos é preservado
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ImagePyramidLevel l WHERE l.id = :id AND l.lastUsedAt < :usedBefore")
+    int deleteIfUnusedSince(@Param("id") Long id, @Param("usedBefore") LocalDateTime usedBefore);
+}
@@ -5,7 +5,11 @@ import com.imageprocessor.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -16,4 +20,9 @@ public interface ImageRepository extends JpaRepository<Image, Long> {
     List<Image> findByOwner(User owner);
     Optional<Image> findByIdAndOwner(Long id, User owner);
     long countByOwner(User owner);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Image i SET i.width = :width, i.height = :height WHERE i.id = :id")
+    void updateDimensions(@Param("id") Long id, @Param("width") Integer width, @Param("height") Integer height);
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.imageprocessor.repository;
+
+import com.imageprocessor.model.OutboxMessage;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+    boolean existsByTaskId(Long taskId);
+    Optional<OutboxMessage> findFirstByOrderByIdAsc();
+
+    @Query("SELECT DISTINCT o.userId FROM OutboxMessage o WHERE o.claimedUntil IS NULL OR o.claimedUntil < :now")
+    List<Long> findPendingUserIds(@Param("now") LocalDateTime now);
+
+    // FOR UPDATE SKIP LOCKED (lock.timeout = -2): relays em outros nós pulam as linhas que estão sendo reservadas,
+    // e as já reservadas ficam de fora até o prazo vencer
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM OutboxMessage o WHERE o.userId = :userId AND (o.claimedUntil IS NULL OR o.claimedUntil < :now) "
+            + "ORDER BY o.id")
+    List<OutboxMessage> lockOldestByUser(@Param("userId") Long userId, @Param("now") LocalDateTime now, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT o FROM OutboxMessage o WHERE o.claimedUntil IS NULL OR o.claimedUntil < :now ORDER BY o.id")
+    List<OutboxMessage> lockOldest(@Param("now") LocalDateTime now, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE OutboxMessage o SET o.claimedUntil = :claimedUntil WHERE o.id IN :ids")
+    int claim(@Param("ids") List<Long> ids, @Param("claimedUntil") LocalDateTime claimedUntil);
+
+    // Publicação sem confirmação: as linhas voltam a ficar disponíveis no ciclo seguinte
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxMessage o SET o.claimedUntil = NULL WHERE o.id IN :ids")
+    int releaseClaims(@Param("ids") List<Long> ids);
+
+    // [userId, quantidade, criação mais antiga]
+    @Query("SELECT o.userId, COUNT(o), MIN(o.createdAt) FROM OutboxMessage o GROUP BY o.userId")
+    List<Object[]> summarizeByUser();
+}
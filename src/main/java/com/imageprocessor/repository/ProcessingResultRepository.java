@@ -0,0 +1,32 @@
+package com.imageprocessor.repository;
+
+import com.imageprocessor.model.ProcessingResult;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ProcessingResultRepository extends JpaRepository<ProcessingResult, Long>,
+        ProcessingResultRepositoryCustom {
+
+    Optional<ProcessingResult> findByResultKey(String resultKey);
+
+    // Incremento e decremento atômicos; devolve 0 se o resultado foi removido desde a leitura
+    @Modifying
+    @Query("UPDATE ProcessingResult r SET r.refCount = r.refCount + :count WHERE r.id = :id")
+    int addReferences(@Param("id") Long id, @Param("count") int count);
+
+    // Preenche o registro criado como trava pela execução em andamento
+    @Modifying
+    @Query("UPDATE ProcessingResult r SET r.storagePath = :storagePath WHERE r.id = :id AND r.storagePath IS NULL")
+    int assignStoragePath(@Param("id") Long id, @Param("storagePath") String storagePath);
+
+    // Remove apenas se nenhuma tarefa voltou a referenciar o resultado desde o decremento
+    @Modifying
+    @Query("DELETE FROM ProcessingResult r WHERE r.id = :id AND r.refCount <= 0")
+    int deleteIfUnreferenced(@Param("id") Long id);
+}
@@ -0,0 +1,14 @@
+package com.imageprocessor.repository;
+
+import com.imageprocessor.model.ProcessingResult;
+
+import java.util.Optional;
+
+public interface ProcessingResultRepositoryCustom {
+
+    // Cria o registro sem caminho nem referências se a chave ainda não tiver um; devolve false quando já existia
+    boolean insertIfAbsent(String resultKey);
+
+    // Trava o registro da chave até o fim da transação e o devolve com o estado atual do banco
+    Optional<ProcessingResult> lockByResultKey(String resultKey);
+}
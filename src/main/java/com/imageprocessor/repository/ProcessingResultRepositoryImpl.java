@@ -0,0 +1,58 @@
+package com.imageprocessor.repository;
+
+import com.imageprocessor.model.ProcessingResult;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.Optional;
+
+public class ProcessingResultRepositoryImpl implements ProcessingResultRepositoryCustom {
+
+    // Violação de integridade (SQLSTATE classe 23), no H2 e no PostgreSQL
+    private static final String INTEGRITY_VIOLATION_CLASS = "23";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Mesmo idioma do registro de conteúdo: o savepoint isola a colisão na chave única sem abortar a transação
+    @Override
+    public boolean insertIfAbsent(String resultKey) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO processing_results (result_key, ref_count, created_at) "
+                            + "VALUES (?, 0, CURRENT_TIMESTAMP)")) {
+                statement.setString(1, resultKey);
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                connection.rollback(savepoint);
+                if (e.getSQLState() != null && e.getSQLState().startsWith(INTEGRITY_VIOLATION_CLASS)) {
+                    return false;
+                }
+                throw e;
+            }
+            connection.releaseSavepoint(savepoint);
+            return true;
+        });
+    }
+
+    // O refresh descarta o que a transação já tinha em memória: as atualizações em lote não passam pelo contexto
+    @Override
+    public Optional<ProcessingResult> lockByResultKey(String resultKey) {
+        return entityManager.createQuery(
+                        "SELECT r FROM ProcessingResult r WHERE r.resultKey = :resultKey", ProcessingResult.class)
+                .setParameter("resultKey", resultKey)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultStream()
+                .findFirst()
+                .map(result -> {
+                    entityManager.refresh(result);
+                    return result;
+                });
+    }
+}
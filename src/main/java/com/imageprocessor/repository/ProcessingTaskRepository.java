@@ -3,23 +3,146 @@ package com.imageprocessor.repository;
 import com.imageprocessor.model.Image;
 import com.imageprocessor.model.ProcessingTask;
 import com.imageprocessor.model.ProcessingTask.TaskStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProcessingTaskRepository extends JpaRepository<ProcessingTask, Long> {
     Page<ProcessingTask> findByOriginalImage_Owner_Id(Long userId, Pageable pageable);
     List<ProcessingTask> findByStatus(TaskStatus status);
 
-    @Query("SELECT pt FROM ProcessingTask pt WHERE pt.status = :status AND pt.createdAt < :timestamp")
-    List<ProcessingTask> findStuckTasks(@Param("status") TaskStatus status, @Param("timestamp") LocalDateTime timestamp);
+    @EntityGraph(attributePaths = {"originalImage", "originalImage.owner", "processingConfig", "variants"})
+    Optional<ProcessingTask> findWithDetailsById(Long id);
+
+    @EntityGraph(attributePaths = {"originalImage", "originalImage.owner", "processingConfig", "variants"})
+    List<ProcessingTask> findWithDetailsByIdIn(Collection<Long> ids);
+
+    // FOR UPDATE SKIP LOCKED no PostgreSQL; no H2 o dialeto usa FOR UPDATE simples
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT pt FROM ProcessingTask pt "
+            + "WHERE (pt.status = :pending AND pt.coalescedInto IS NULL AND (pt.nextAttemptAt IS NULL OR pt.nextAttemptAt <= :now)) "
+            + "OR (pt.status = :processing AND pt.leaseExpiresAt < :now) ORDER BY pt.priority DESC, pt.id")
+    List<ProcessingTask> lockClaimable(@Param("pending") TaskStatus pending, @Param("processing") TaskStatus processing,
+                                       @Param("now") LocalDateTime now, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ProcessingTask pt SET pt.leaseExpiresAt = :until "
+            + "WHERE pt.id IN :ids AND pt.leaseOwner = :owner AND pt.status = :status")
+    int extendLeases(@Param("ids") Collection<Long> ids, @Param("owner") String owner,
+                     @Param("status") TaskStatus status, @Param("until") LocalDateTime until);
+
+    // [id do dono, quantidade, criação mais antiga]
+    @Query("SELECT pt.originalImage.owner.id, COUNT(pt), MIN(pt.createdAt) FROM ProcessingTask pt "
+            + "WHERE pt.status = :status GROUP BY pt.originalImage.owner.id")
+    List<Object[]> summarizeByOwner(@Param("status") TaskStatus status);
+
+    // Reenvio de mensagens mortas; confirmado na própria chamada, antes da republicação
+    @Modifying
+    @Transactional
+    @Query("UPDATE ProcessingTask pt SET pt.status = :to, pt.attempts = 0, pt.errorMessage = NULL, pt.completedAt = NULL, "
+            + "pt.nextAttemptAt = NULL, pt.updatedAt = :updatedAt WHERE pt.id IN :ids AND pt.status = :from")
+    int resetFailed(@Param("ids") Collection<Long> ids, @Param("from") TaskStatus from, @Param("to") TaskStatus to,
+                    @Param("updatedAt") LocalDateTime updatedAt);
+
+    List<ProcessingTask> findByStatusOrderByIdAsc(TaskStatus status, Pageable pageable);
+
+    // Transição condicional do lote inteiro em uma instrução: só um consumidor consegue mover cada tarefa de PENDING
+    // para PROCESSING, já com a concessão. Cópias que chegam antes do fim da espera da retentativa não assumem a tarefa
+    @Modifying
+    @Query("UPDATE ProcessingTask pt SET pt.status = :to, pt.leaseOwner = :owner, pt.leaseExpiresAt = :leaseExpiresAt, "
+            + "pt.updatedAt = :updatedAt WHERE pt.id IN :ids AND pt.status = :from "
+            + "AND (pt.nextAttemptAt IS NULL OR pt.nextAttemptAt <= :updatedAt)")
+    int claimAll(@Param("ids") Collection<Long> ids, @Param("from") TaskStatus from, @Param("to") TaskStatus to,
+                 @Param("owner") String owner, @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt,
+                 @Param("updatedAt") LocalDateTime updatedAt);
+
+    // Linhas que claimAll acabou de mover: status, dono e a marca de tempo da instrução
+    @Query("SELECT pt.id FROM ProcessingTask pt WHERE pt.id IN :ids AND pt.status = :status "
+            + "AND pt.leaseOwner = :owner AND pt.updatedAt = :updatedAt")
+    List<Long> findClaimedIds(@Param("ids") Collection<Long> ids, @Param("status") TaskStatus status,
+                              @Param("owner") String owner, @Param("updatedAt") LocalDateTime updatedAt);
+
+    // Encerra a execução apenas se a concessão ainda for deste nó; cópias duplicadas e concessões retomadas não passam
+    @Modifying
+    @Query("UPDATE ProcessingTask pt SET pt.status = :to, pt.leaseOwner = NULL, pt.leaseExpiresAt = NULL, "
+            + "pt.updatedAt = :updatedAt WHERE pt.id = :id AND pt.status = :from AND pt.leaseOwner = :owner")
+    int finishLease(@Param("id") Long id, @Param("owner") String owner, @Param("from") TaskStatus from,
+                    @Param("to") TaskStatus to, @Param("updatedAt") LocalDateTime updatedAt);
+
+    @Modifying
+    @Query("UPDATE ProcessingTask pt SET pt.status = :to, pt.leaseOwner = NULL, pt.leaseExpiresAt = NULL, "
+            + "pt.updatedAt = :updatedAt WHERE pt.id IN :ids AND pt.status = :from AND pt.leaseOwner = :owner")
+    int finishLeases(@Param("ids") Collection<Long> ids, @Param("owner") String owner, @Param("from") TaskStatus from,
+                     @Param("to") TaskStatus to, @Param("updatedAt") LocalDateTime updatedAt);
+
+    // Linhas que finishLeases acabou de encerrar; só o dono da concessão encerra, então a marca de tempo as identifica
+    @Query("SELECT pt.id FROM ProcessingTask pt WHERE pt.id IN :ids AND pt.status = :status "
+            + "AND pt.leaseOwner IS NULL AND pt.updatedAt = :updatedAt")
+    List<Long> findFinishedIds(@Param("ids") Collection<Long> ids, @Param("status") TaskStatus status,
+                               @Param("updatedAt") LocalDateTime updatedAt);
+
+    @EntityGraph(attributePaths = {"originalImage", "originalImage.owner", "processingConfig", "variants"})
+    List<ProcessingTask> findByStatusAndPriorityLessThanAndCreatedAtBefore(TaskStatus status, int priority,
+                                                                           LocalDateTime timestamp);
+
+    // Concessões vencidas; linhas sem concessão (anteriores a elas) contam pela última atualização
+    @Query("SELECT pt.id FROM ProcessingTask pt WHERE pt.status = :status AND (pt.leaseExpiresAt < :now "
+            + "OR (pt.leaseExpiresAt IS NULL AND pt.updatedAt < :staleBefore)) ORDER BY pt.id")
+    List<Long> findExpiredLeaseIds(@Param("status") TaskStatus status, @Param("now") LocalDateTime now,
+                                   @Param("staleBefore") LocalDateTime staleBefore, Pageable pageable);
+
+    // Tarefas paradas no status desde staleBefore, fora da espera de uma retentativa; agrupadas esperam a líder
+    @Query("SELECT pt.id FROM ProcessingTask pt WHERE pt.status = :status AND pt.updatedAt < :staleBefore "
+            + "AND pt.coalescedInto IS NULL AND (pt.nextAttemptAt IS NULL OR pt.nextAttemptAt < :staleBefore) ORDER BY pt.id")
+    List<Long> findStuckTaskIds(@Param("status") TaskStatus status, @Param("staleBefore") LocalDateTime staleBefore,
+                                Pageable pageable);
+
+    // Devolve a PENDING apenas o que continua vencido; um heartbeat pode ter renovado a concessão desde a consulta
+    @Modifying
+    @Transactional
+    @Query("UPDATE ProcessingTask pt SET pt.status = :to, pt.leaseOwner = NULL, pt.leaseExpiresAt = NULL, pt.updatedAt = :now "
+            + "WHERE pt.id IN :ids AND pt.status = :from AND (pt.leaseExpiresAt < :now "
+            + "OR (pt.leaseExpiresAt IS NULL AND pt.updatedAt < :staleBefore))")
+    int releaseExpiredLeases(@Param("ids") Collection<Long> ids, @Param("from") TaskStatus from, @Param("to") TaskStatus to,
+                             @Param("now") LocalDateTime now, @Param("staleBefore") LocalDateTime staleBefore);
+
+    // Marca as tarefas reenviadas para que só voltem a ser consideradas paradas depois de outro intervalo inteiro
+    @Modifying
+    @Transactional
+    @Query("UPDATE ProcessingTask pt SET pt.updatedAt = :now WHERE pt.id IN :ids AND pt.status = :status")
+    int touch(@Param("ids") Collection<Long> ids, @Param("status") TaskStatus status, @Param("now") LocalDateTime now);
+
+    // Execução idêntica em andamento à qual novas tarefas com a mesma chave são agrupadas
+    Optional<ProcessingTask> findFirstByResultKeyAndStatusInAndCoalescedIntoIsNullOrderByIdAsc(
+            String resultKey, Collection<TaskStatus> statuses);
+
+    @EntityGraph(attributePaths = {"originalImage", "originalImage.owner", "processingConfig", "variants"})
+    List<ProcessingTask> findByCoalescedIntoAndStatus(Long leaderId, TaskStatus status);
+
+    // Agrupadas cuja líder terminou sem entregá-las (criadas durante a conclusão dela) ou foi excluída
+    @Query("SELECT pt.id FROM ProcessingTask pt WHERE pt.status = :status AND pt.coalescedInto IS NOT NULL "
+            + "AND NOT EXISTS (SELECT leader.id FROM ProcessingTask leader WHERE leader.id = pt.coalescedInto "
+            + "AND leader.status IN :active) ORDER BY pt.id")
+    List<Long> findOrphanedFollowerIds(@Param("status") TaskStatus status, @Param("active") Collection<TaskStatus> active,
+                                       Pageable pageable);
 
     List<ProcessingTask> findByOriginalImage(Image image);
 
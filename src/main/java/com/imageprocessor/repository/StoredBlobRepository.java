@@ -0,0 +1,31 @@
+package com.imageprocessor.repository;
+
+import com.imageprocessor.model.StoredBlob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StoredBlobRepository extends JpaRepository<StoredBlob, Long>, StoredBlobRepositoryCustom {
+
+    Optional<StoredBlob> findByContentHash(String contentHash);
+
+    // Incremento e decremento atômicos; devolve 0 se o arquivo foi removido desde a leitura
+    @Modifying
+    @Query("UPDATE StoredBlob b SET b.refCount = b.refCount + :count WHERE b.id = :id")
+    int addReferences(@Param("id") Long id, @Param("count") int count);
+
+    // Remove apenas se nenhuma imagem voltou a referenciar o conteúdo desde o decremento
+    @Modifying
+    @Query("DELETE FROM StoredBlob b WHERE b.id = :id AND b.refCount <= 0")
+    int deleteIfUnreferenced(@Param("id") Long id);
+
+    // Registros sem nenhuma referência (ex.: deixados por versões anteriores); candidatos à varredura
+    List<StoredBlob> findByRefCountLessThanEqualOrderByIdAsc(int refCount, Pageable pageable);
+}
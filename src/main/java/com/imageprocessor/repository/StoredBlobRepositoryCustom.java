@@ -0,0 +1,7 @@
+package com.imageprocessor.repository;
+
+public interface StoredBlobRepositoryCustom {
+
+    // Cria o registro sem referências se o conteúdo ainda não tiver um; devolve false quando já existia
+    boolean insertIfAbsent(String contentHash, String storagePath, long size);
+}
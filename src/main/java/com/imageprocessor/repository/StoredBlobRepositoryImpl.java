@@ -0,0 +1,44 @@
+package com.imageprocessor.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+public class StoredBlobRepositoryImpl implements StoredBlobRepositoryCustom {
+
+    // Violação de integridade (SQLSTATE classe 23), no H2 e no PostgreSQL
+    private static final String INTEGRITY_VIOLATION_CLASS = "23";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Inserção na própria transação do upload, protegida por um savepoint JDBC na mesma conexão: quando um upload
+    // concorrente do mesmo conteúdo vence a chave única, só o savepoint é desfeito (o PostgreSQL abortaria a
+    // transação inteira) e quem perde relê a linha do vencedor, sem ocupar uma segunda conexão do pool
+    @Override
+    public boolean insertIfAbsent(String contentHash, String storagePath, long size) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO stored_blobs (content_hash, storage_path, size, ref_count, created_at) "
+                            + "VALUES (?, ?, ?, 0, CURRENT_TIMESTAMP)")) {
+                statement.setString(1, contentHash);
+                statement.setString(2, storagePath);
+                statement.setLong(3, size);
+                statement.executeUpdate();
+            } catch (SQLException e) {
+                connection.rollback(savepoint);
+                if (e.getSQLState() != null && e.getSQLState().startsWith(INTEGRITY_VIOLATION_CLASS)) {
+                    return false;
+                }
+                throw e;
+            }
+            connection.releaseSavepoint(savepoint);
+            return true;
+        });
+    }
+}
@@ -33,6 +33,9 @@ public class JwtUserDetails implements UserDetails {
 
         // Todos os usuários têm o papel básico
         authorities.add(new SimpleGrantedAuthority("ROLE_USER"));
+        if (user.isAdmin()) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
+        }
 
         // Verificar se o usuário tem plano premium para adicionar autoridade correspondente
         boolean isPremium = false;
@@ -66,6 +69,9 @@ public class JwtUserDetails implements UserDetails {
 
         // Todos os usuários têm o papel básico
         authorities.add(new SimpleGrantedAuthority("ROLE_USER"));
+        if (user.isAdmin()) {
+            authorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
+        }
 
         // Verificar se o usuário tem plano premium para adicionar autoridade correspondente
         boolean isPremium = false;
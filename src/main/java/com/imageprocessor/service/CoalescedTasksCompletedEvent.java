@@ -0,0 +1,14 @@
+package com.imageprocessor.service;
+
+import com.imageprocessor.model.ProcessingTask;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// Tarefas agrupadas concluídas junto com a líder; os donos são avisados após o commit
+@Getter
+@AllArgsConstructor
+public class CoalescedTasksCompletedEvent {
+    private final List<ProcessingTask> tasks;
+}
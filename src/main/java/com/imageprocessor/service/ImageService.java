@@ -1,15 +1,21 @@
 package com.imageprocessor.service;
 
 import com.imageprocessor.dto.ImageDTO;
+import com.imageprocessor.dto.StoredFile;
+import com.imageprocessor.exception.InvalidImageException;
 import com.imageprocessor.exception.ResourceNotFoundException;
 import com.imageprocessor.model.Image;
+import com.imageprocessor.model.ProcessingTask;
+import com.imageprocessor.model.Subscription;
 import com.imageprocessor.model.User;
 import com.imageprocessor.repository.ImageRepository;
+import com.imageprocessor.repository.ProcessingResultRepository;
 import com.imageprocessor.repository.UserRepository;
 import com.imageprocessor.security.JwtUserDetails;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -19,6 +25,7 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,13 +34,18 @@ import java.util.stream.Collectors;
 public class ImageService {
 
     private final ImageRepository imageRepository;
+    private final ProcessingResultRepository processingResultRepository;
     private final UserRepository userRepository;
     private final StorageService storageService;
     private final QuotaService quotaService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Value("${app.base-url}")
     private String baseUrl;
 
+    @Value("${app.upload.max-pixels:25000000}")
+    private long defaultMaxPixels;
+
     @Transactional
     public ImageDTO uploadImage(MultipartFile file) {
         // Obter o usuário atual
@@ -45,20 +57,39 @@ public class ImageService {
         quotaService.checkAndUpdateQuota(user);
 
         // Armazenar o arquivo
-        String storagePath = storageService.storeFile(file);
+        StoredFile storedFile = storageService.storeFile(file);
+
+        // Rejeitar pelo cabeçalho imagens que declaram mais pixels que o plano permite (ex.: bombas de descompressão)
+        long pixels = (long) storedFile.getWidth() * storedFile.getHeight();
+        long maxPixels = getMaxPixels(user);
+        if (pixels > maxPixels) {
+            storageService.releaseFile(storedFile.getStoragePath(), storedFile.getContentHash());
+            throw new InvalidImageException(String.format(
+                    "Imagem de %dx%d excede o limite de %d pixels do plano",
+                    storedFile.getWidth(), storedFile.getHeight(), maxPixels));
+        }
 
         // Criar entidade de imagem
         Image image = Image.builder()
                 .originalFilename(file.getOriginalFilename())
-                .storagePath(storagePath)
+                .storagePath(storedFile.getStoragePath())
                 .contentType(file.getContentType())
                 .size(file.getSize())
+                .width(storedFile.getWidth())
+                .height(storedFile.getHeight())
+                .format(storedFile.getFormat())
+                .bitDepth(storedFile.getBitDepth())
+                .frameCount(storedFile.getFrameCount())
+                .contentHash(storedFile.getContentHash())
                 .owner(user)
                 .build();
 
         imageRepository.save(image);
         log.info("Imagem {} carregada pelo usuário: {}", image.getId(), user.getUsername());
 
+        // Etapas posteriores ao upload (pirâmide de resoluções) rodam em segundo plano após o commit
+        eventPublisher.publishEvent(new ImageUploadedEvent(image.getId()));
+
         return mapImageToDto(image);
     }
 
@@ -93,14 +124,39 @@ public class ImageService {
         Image image = imageRepository.findByIdAndOwner(id, user)
                 .orElseThrow(() -> new ResourceNotFoundException("Image", "id", id));
 
-        // Excluir arquivo do armazenamento
-        storageService.deleteFile(image.getStoragePath());
+        // Excluir arquivo do armazenamento; conteúdo compartilhado com outras imagens permanece
+        storageService.releaseFile(image.getStoragePath(), image.getContentHash());
+        image.getPyramidLevels().forEach(level -> storageService.deleteAfterCommit(level.getStoragePath()));
+        releaseResults(image);
 
         // Excluir entidade do banco de dados
         imageRepository.delete(image);
         log.info("Imagem {} excluída pelo usuário: {}", id, user.getUsername());
     }
 
+    // Resultados memoizados são compartilhados: cada tarefa excluída devolve sua referência e o último apaga o arquivo
+    private void releaseResults(Image image) {
+        Map<String, Long> references = image.getProcessingTasks().stream()
+                .filter(task -> task.getStatus() == ProcessingTask.TaskStatus.COMPLETED && task.getResultKey() != null)
+                .map(ProcessingTask::getResultKey)
+                .collect(Collectors.groupingBy(key -> key, Collectors.counting()));
+        references.forEach((key, count) -> processingResultRepository.findByResultKey(key).ifPresent(result -> {
+            processingResultRepository.addReferences(result.getId(), -count.intValue());
+            if (processingResultRepository.deleteIfUnreferenced(result.getId()) == 1 && result.getStoragePath() != null) {
+                storageService.deleteAfterCommit(result.getStoragePath());
+            }
+        }));
+    }
+
+    private long getMaxPixels(User user) {
+        Subscription subscription = user.getSubscription();
+        if (subscription != null && subscription.isActive() && subscription.getPlan() != null
+                && subscription.getPlan().getMaxPixels() != null) {
+            return subscription.getPlan().getMaxPixels();
+        }
+        return defaultMaxPixels;
+    }
+
     private ImageDTO mapImageToDto(Image image) {
         String imageUrl = ServletUriComponentsBuilder.fromUriString(baseUrl)
                 .path("/api/images/")
@@ -114,6 +170,11 @@ public class ImageService {
                 .originalFilename(image.getOriginalFilename())
                 .contentType(image.getContentType())
                 .size(image.getSize())
+                .width(image.getWidth())
+                .height(image.getHeight())
+                .format(image.getFormat())
+                .bitDepth(image.getBitDepth())
+                .frameCount(image.getFrameCount())
                 .url(imageUrl)
                 .createdAt(image.getCreatedAt())
                 .build();
@@ -0,0 +1,11 @@
+package com.imageprocessor.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+// Publicado no upload; os ouvintes rodam após o commit, quando a imagem já está visível para outras transações
+@Getter
+@AllArgsConstructor
+public class ImageUploadedEvent {
+    private final Long imageId;
+}
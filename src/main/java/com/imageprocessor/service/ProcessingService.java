@@ -1,39 +1,98 @@
 package com.imageprocessor.service;
 
 import com.imageprocessor.config.RabbitMQConfig;
+import com.imageprocessor.dto.DeadLetterDTO;
 import com.imageprocessor.dto.ProcessingRequestDTO;
 import com.imageprocessor.dto.ProcessingResponseDTO;
+import com.imageprocessor.dto.TenantQueueStatsDTO;
+import com.imageprocessor.dto.VariantSetRequestDTO;
 import com.imageprocessor.exception.ResourceNotFoundException;
 import com.imageprocessor.model.Image;
 import com.imageprocessor.model.ProcessingConfig;
+import com.imageprocessor.model.ProcessingResult;
 import com.imageprocessor.model.ProcessingTask;
+import com.imageprocessor.model.ProcessingVariant;
+import com.imageprocessor.model.Subscription;
 import com.imageprocessor.model.User;
+import com.imageprocessor.queue.RetryPolicy;
+import com.imageprocessor.queue.TaskDispatcher;
+import com.imageprocessor.queue.WorkerLeases;
 import com.imageprocessor.repository.ImageRepository;
+import com.imageprocessor.repository.ProcessingResultRepository;
 import com.imageprocessor.repository.ProcessingTaskRepository;
 import com.imageprocessor.repository.UserRepository;
 import com.imageprocessor.security.JwtUserDetails;
+import com.imageprocessor.util.FileNames;
+import com.imageprocessor.util.ResizeMethod;
+import com.imageprocessor.util.ResultKeys;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class ProcessingService {
 
+    private static final String STARVATION_LOCK_NAME = "starvation-guard";
+
     private final ProcessingTaskRepository processingTaskRepository;
     private final ImageRepository imageRepository;
     private final UserRepository userRepository;
     private final QuotaService quotaService;
-    private final RabbitTemplate rabbitTemplate;
+    private final TaskDispatcher taskDispatcher;
+    private final RetryPolicy retryPolicy;
+    private final WorkerLeases workerLeases;
+    private final ProcessingResultRepository processingResultRepository;
+    private final StorageService storageService;
+    private final EmailService emailService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SchedulerLockService schedulerLockService;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.processing.priority.premium:8}")
+    private int premiumPriority;
+
+    @Value("${app.processing.priority.standard:2}")
+    private int standardPriority;
+
+    // Tarefas pendentes há mais tempo que isso são republicadas com a prioridade máxima
+    @Value("${app.processing.priority.starvation-threshold-ms:120000}")
+    private long starvationThresholdMillis;
+
+    @Value("${app.processing.priority.starvation-check-interval-ms:30000}")
+    private long starvationCheckIntervalMillis;
+
+    // Pedidos repetidos (mesmo conteúdo e mesma configuração) reaproveitam o resultado ou a execução em andamento
+    @Value("${app.processing.memoization.enabled:true}")
+    private boolean memoizationEnabled;
+
+    // Entra na chave no lugar de um método não informado, para que as duas formas do pedido coincidam
+    @Value("${app.processing.resize.default-method:SCALR}")
+    private ResizeMethod defaultResizeMethod;
 
     @Transactional
     public ProcessingResponseDTO createProcessingTask(ProcessingRequestDTO requestDTO) {
@@ -49,35 +108,84 @@ public class ProcessingService {
         Image image = imageRepository.findByIdAndOwner(requestDTO.getImageId(), user)
                 .orElseThrow(() -> new ResourceNotFoundException("Image", "id", requestDTO.getImageId()));
 
-        // Criar configuração de processamento
+        // Criar configuração de processamento; redimensionamento sem porcentagem é tratado como desligado
         ProcessingConfig config = ProcessingConfig.builder()
-                .resizeEnabled(requestDTO.isResizeEnabled())
+                .resizeEnabled(requestDTO.isResizeEnabled() && requestDTO.getResizePercentage() != null)
                 .resizePercentage(requestDTO.getResizePercentage())
+                .resizeMethod(requestDTO.getResizeMethod())
                 .grayscaleEnabled(requestDTO.isGrayscaleEnabled())
                 .build();
 
         // Criar tarefa de processamento
+        String resultKey = resultKey(image, config);
         ProcessingTask task = ProcessingTask.builder()
                 .originalImage(image)
                 .status(ProcessingTask.TaskStatus.PENDING)
                 .processingConfig(config)
+                .priority(resolvePriority(user))
+                .maxAttempts(retryPolicy.getMaxAttempts())
+                .resultKey(resultKey)
                 .build();
-
         config.setProcessingTask(task);
+
+        if (resultKey != null && reuseResult(task, resultKey)) {
+            processingTaskRepository.save(task);
+            log.info("Tarefa de processamento {} concluída com resultado já existente para imagem: {}",
+                    task.getId(), image.getId());
+            return mapTaskToDto(task);
+        }
+
         processingTaskRepository.save(task);
+        if (task.getCoalescedInto() != null) {
+            log.info("Tarefa de processamento {} agrupada à tarefa {} para imagem: {}",
+                    task.getId(), task.getCoalescedInto(), image.getId());
+            return mapTaskToDto(task);
+        }
 
-        // Enviar tarefa para a fila de processamento
-        rabbitTemplate.convertAndSend(
-                RabbitMQConfig.EXCHANGE_IMAGE_PROCESSING,
-                RabbitMQConfig.ROUTING_KEY_IMAGE_PROCESSING,
-                task.getId()
-        );
+        // Enviar tarefa para a fila de processamento, passando pela fila justa do usuário
+        taskDispatcher.submit(task, user.getId(), resolveWeight(user));
 
         log.info("Tarefa de processamento criada: {} para imagem: {}", task.getId(), image.getId());
 
         return mapTaskToDto(task);
     }
 
+    @Transactional
+    public ProcessingResponseDTO createVariantSetTask(VariantSetRequestDTO requestDTO) {
+        JwtUserDetails userDetails = (JwtUserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        User user = userRepository.findById(userDetails.getId())
+                .orElseThrow(() -> new ResourceNotFoundException("User", "id", userDetails.getId()));
+
+        // Um conjunto de variantes consome uma única unidade de quota, como uma tarefa simples
+        quotaService.checkAndUpdateQuota(user);
+
+        Image image = imageRepository.findByIdAndOwner(requestDTO.getImageId(), user)
+                .orElseThrow(() -> new ResourceNotFoundException("Image", "id", requestDTO.getImageId()));
+
+        ProcessingTask task = ProcessingTask.builder()
+                .originalImage(image)
+                .status(ProcessingTask.TaskStatus.PENDING)
+                .priority(resolvePriority(user))
+                .maxAttempts(retryPolicy.getMaxAttempts())
+                .build();
+
+        requestDTO.getVariants().forEach(variantDTO -> task.getVariants().add(ProcessingVariant.builder()
+                .processingTask(task)
+                .name(variantDTO.getName())
+                .resizePercentage(variantDTO.getResizePercentage())
+                .grayscaleEnabled(variantDTO.isGrayscaleEnabled())
+                .resizeMethod(variantDTO.getResizeMethod())
+                .build()));
+        processingTaskRepository.save(task);
+
+        taskDispatcher.submit(task, user.getId(), resolveWeight(user));
+
+        log.info("Tarefa de variantes criada: {} para imagem: {} ({} variantes)",
+                task.getId(), image.getId(), task.getVariants().size());
+
+        return mapTaskToDto(task);
+    }
+
     @Transactional(readOnly = true)
     public Page<ProcessingResponseDTO> getUserProcessingTasks(Pageable pageable) {
         JwtUserDetails userDetails = (JwtUserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
@@ -101,23 +209,366 @@ public class ProcessingService {
         return mapTaskToDto(task);
     }
 
+    @Transactional(readOnly = true)
+    public ProcessingVariant getVariant(Long taskId, String name) {
+        JwtUserDetails userDetails = (JwtUserDetails) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+
+        ProcessingTask task = processingTaskRepository.findById(taskId)
+                .orElseThrow(() -> new ResourceNotFoundException("ProcessingTask", "id", taskId));
+
+        if (!task.getOriginalImage().getOwner().getId().equals(userDetails.getId())) {
+            throw new ResourceNotFoundException("ProcessingTask", "id", taskId);
+        }
+
+        return task.getVariants().stream()
+                .filter(variant -> variant.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("ProcessingVariant", "name", name));
+    }
+
     @Transactional
-    public void updateTaskStatus(Long taskId, ProcessingTask.TaskStatus status, String resultPath, String errorMessage) {
+    public boolean completeVariants(Long taskId, List<ProcessingVariant> results) {
         ProcessingTask task = processingTaskRepository.findById(taskId)
                 .orElseThrow(() -> new ResourceNotFoundException("ProcessingTask", "id", taskId));
+        LocalDateTime now = LocalDateTime.now();
+        if (!finishLease(task, ProcessingTask.TaskStatus.COMPLETED, now)) {
+            return false;
+        }
 
-        task.setStatus(status);
+        // Todas as saídas foram gravadas na mesma execução; registrar os resultados e concluir a tarefa juntos
+        Map<Long, ProcessingVariant> resultsById = results.stream()
+                .collect(Collectors.toMap(ProcessingVariant::getId, Function.identity()));
+        for (ProcessingVariant variant : task.getVariants()) {
+            ProcessingVariant result = resultsById.get(variant.getId());
+            if (result != null) {
+                variant.setResultImagePath(result.getResultImagePath());
+                variant.setWidth(result.getWidth());
+                variant.setHeight(result.getHeight());
+            }
+        }
+
+        task.setCompletedAt(now);
+        processingTaskRepository.save(task);
+        log.info("Tarefa {} concluída com {} variantes", taskId, results.size());
+        return true;
+    }
+
+    @Transactional
+    public List<Long> claim(List<Long> taskIds) {
+        // Uma transição condicional para o lote inteiro e uma leitura das que este consumidor assumiu.
+        // Milissegundos: a marca de tempo precisa voltar do banco igual para identificar as linhas desta instrução
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        if (processingTaskRepository.claimAll(taskIds, ProcessingTask.TaskStatus.PENDING, ProcessingTask.TaskStatus.PROCESSING,
+                workerLeases.getNodeId(), workerLeases.leaseUntil(now), now) == 0) {
+            return List.of();
+        }
+        return processingTaskRepository.findClaimedIds(taskIds, ProcessingTask.TaskStatus.PROCESSING,
+                workerLeases.getNodeId(), now);
+    }
+
+    // Devolve os ids cujo resultado foi registrado; os demais já não pertenciam a este nó
+    @Transactional
+    public Set<Long> completeBatch(List<ProcessingTask> results) {
+        Map<Long, ProcessingTask> resultsById = results.stream()
+                .collect(Collectors.toMap(ProcessingTask::getId, Function.identity()));
+
+        // Status e concessão em uma instrução por status de destino, só para as execuções ainda deste nó
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        Set<Long> applied = new HashSet<>();
+        Map<ProcessingTask.TaskStatus, List<Long>> idsByStatus = results.stream()
+                .collect(Collectors.groupingBy(ProcessingTask::getStatus,
+                        Collectors.mapping(ProcessingTask::getId, Collectors.toList())));
+        idsByStatus.forEach((status, ids) -> {
+            if (processingTaskRepository.finishLeases(ids, workerLeases.getNodeId(), ProcessingTask.TaskStatus.PROCESSING,
+                    status, now) > 0) {
+                applied.addAll(processingTaskRepository.findFinishedIds(ids, status, now));
+            }
+        });
+        resultsById.keySet().stream().filter(id -> !applied.contains(id)).forEach(id ->
+                log.info("Resultado da tarefa {} descartado: execução já encerrada ou retomada por outro nó", id));
+        if (applied.isEmpty()) {
+            return applied;
+        }
+
+        // Carregadas depois da transição; resultado, variantes e erro saem agrupados no flush (hibernate.jdbc.batch_size)
+        List<ProcessingTask> tasks = processingTaskRepository.findWithDetailsByIdIn(applied);
+        for (ProcessingTask task : tasks) {
+            ProcessingTask result = resultsById.get(task.getId());
+            if (result.getStatus() == ProcessingTask.TaskStatus.COMPLETED) {
+                task.setResultImagePath(result.getResultImagePath());
+                task.setCompletedAt(now);
+                Map<Long, ProcessingVariant> variantsById = result.getVariants().stream()
+                        .collect(Collectors.toMap(ProcessingVariant::getId, Function.identity()));
+                for (ProcessingVariant variant : task.getVariants()) {
+                    ProcessingVariant variantResult = variantsById.get(variant.getId());
+                    variant.setResultImagePath(variantResult.getResultImagePath());
+                    variant.setWidth(variantResult.getWidth());
+                    variant.setHeight(variantResult.getHeight());
+                }
+                memoize(task);
+            } else if (result.getStatus() == ProcessingTask.TaskStatus.FAILED) {
+                task.setErrorMessage(result.getErrorMessage());
+                task.setCompletedAt(now);
+                releaseFollowers(task);
+            }
+        }
+        processingTaskRepository.saveAll(tasks);
+        log.info("Status de {} tarefas do lote atualizado", applied.size());
+        return applied;
+    }
+
+    // Encerra uma execução assumida por este nó; devolve false se outra cópia ou outro nó já a encerrou
+    @Transactional
+    public boolean updateTaskStatus(Long taskId, ProcessingTask.TaskStatus status, String resultPath, String errorMessage) {
+        ProcessingTask task = processingTaskRepository.findById(taskId)
+                .orElseThrow(() -> new ResourceNotFoundException("ProcessingTask", "id", taskId));
+        if (!finishLease(task, status, LocalDateTime.now())) {
+            return false;
+        }
 
         if (status == ProcessingTask.TaskStatus.COMPLETED) {
             task.setResultImagePath(resultPath);
             task.setCompletedAt(LocalDateTime.now());
+            memoize(task);
         } else if (status == ProcessingTask.TaskStatus.FAILED) {
             task.setErrorMessage(errorMessage);
             task.setCompletedAt(LocalDateTime.now());
+            releaseFollowers(task);
         }
 
         processingTaskRepository.save(task);
         log.info("Status da tarefa {} atualizado para: {}", taskId, status);
+        return true;
+    }
+
+    // Falha transitória com tentativas restantes volta a PENDING com espera exponencial; as demais terminam em FAILED
+    // Vazio quando a execução já não pertencia a este nó: a falha não conta e nada é reenviado
+    @Transactional
+    public Optional<ProcessingTask> recordFailure(Long taskId, String errorMessage, boolean permanent) {
+        ProcessingTask task = processingTaskRepository.findById(taskId)
+                .orElseThrow(() -> new ResourceNotFoundException("ProcessingTask", "id", taskId));
+
+        LocalDateTime now = LocalDateTime.now();
+        int attempts = task.getAttempts() + 1;
+        boolean retry = !permanent && attempts < task.getMaxAttempts();
+        if (!finishLease(task, retry ? ProcessingTask.TaskStatus.PENDING : ProcessingTask.TaskStatus.FAILED, now)) {
+            return Optional.empty();
+        }
+
+        task.setAttempts(attempts);
+        if (retry) {
+            task.setNextAttemptAt(now.plus(retryPolicy.delayFor(attempts), ChronoUnit.MILLIS));
+        } else {
+            task.setErrorMessage(errorMessage);
+            task.setCompletedAt(now);
+            releaseFollowers(task);
+        }
+
+        processingTaskRepository.save(task);
+        log.info("Falha {} de {} da tarefa {}: status {}", attempts, task.getMaxAttempts(), taskId, task.getStatus());
+        return Optional.of(task);
+    }
+
+    // Transição condicional PROCESSING -> status para a concessão deste nó; a entidade carregada acompanha o banco
+    private boolean finishLease(ProcessingTask task, ProcessingTask.TaskStatus status, LocalDateTime now) {
+        if (processingTaskRepository.finishLease(task.getId(), workerLeases.getNodeId(),
+                ProcessingTask.TaskStatus.PROCESSING, status, now) == 0) {
+            log.info("Resultado da tarefa {} descartado: execução já encerrada ou retomada por outro nó", task.getId());
+            return false;
+        }
+        task.setStatus(status);
+        task.setLeaseOwner(null);
+        task.setLeaseExpiresAt(null);
+        return true;
+    }
+
+    // Conclui a tarefa com um resultado já gerado ou a agrupa a uma execução idêntica em andamento.
+    // A chave fica travada até o commit: de dois pedidos idênticos simultâneos, o segundo já encontra a líder
+    private boolean reuseResult(ProcessingTask task, String resultKey) {
+        Optional<ProcessingResult> existing = lockResult(resultKey);
+        if (existing.isPresent() && existing.get().getStoragePath() != null) {
+            processingResultRepository.addReferences(existing.get().getId(), 1);
+            task.setStatus(ProcessingTask.TaskStatus.COMPLETED);
+            task.setResultImagePath(existing.get().getStoragePath());
+            task.setCompletedAt(LocalDateTime.now());
+            return true;
+        }
+        processingTaskRepository.findFirstByResultKeyAndStatusInAndCoalescedIntoIsNullOrderByIdAsc(resultKey,
+                        List.of(ProcessingTask.TaskStatus.PENDING, ProcessingTask.TaskStatus.PROCESSING))
+                .ifPresent(leader -> task.setCoalescedInto(leader.getId()));
+        return false;
+    }
+
+    // Registra o resultado da tarefa concluída e o entrega às tarefas agrupadas a ela
+    private void memoize(ProcessingTask task) {
+        if (task.getResultKey() == null || task.getResultImagePath() == null) {
+            return;
+        }
+        Optional<ProcessingResult> existing = lockResult(task.getResultKey());
+        if (existing.isEmpty()) {
+            return;
+        }
+        ProcessingResult result = existing.get();
+        if (result.getStoragePath() == null) {
+            processingResultRepository.assignStoragePath(result.getId(), task.getResultImagePath());
+            result.setStoragePath(task.getResultImagePath());
+        } else if (!result.getStoragePath().equals(task.getResultImagePath())) {
+            // Execuções idênticas concorrentes: fica valendo o primeiro resultado registrado. A cópia só sai do
+            // disco depois do commit, para não sumir debaixo de uma transação que ainda pode ser desfeita
+            storageService.deleteAfterCommit(task.getResultImagePath());
+            task.setResultImagePath(result.getStoragePath());
+        }
+        processingResultRepository.addReferences(result.getId(), 1);
+
+        List<ProcessingTask> followers = processingTaskRepository.findByCoalescedIntoAndStatus(task.getId(),
+                ProcessingTask.TaskStatus.PENDING);
+        if (followers.isEmpty()) {
+            return;
+        }
+        for (ProcessingTask follower : followers) {
+            follower.setStatus(ProcessingTask.TaskStatus.COMPLETED);
+            follower.setResultImagePath(result.getStoragePath());
+            follower.setCompletedAt(task.getCompletedAt());
+        }
+        processingTaskRepository.saveAll(followers);
+        processingResultRepository.addReferences(result.getId(), followers.size());
+        eventPublisher.publishEvent(new CoalescedTasksCompletedEvent(followers));
+        log.info("Resultado da tarefa {} entregue a {} tarefas agrupadas", task.getId(), followers.size());
+    }
+
+    // Garante o registro da chave e o trava; um registro removido entre a inserção e a trava é recriado
+    private Optional<ProcessingResult> lockResult(String resultKey) {
+        for (int attempt = 0; attempt < 3; attempt++) {
+            processingResultRepository.insertIfAbsent(resultKey);
+            Optional<ProcessingResult> result = processingResultRepository.lockByResultKey(resultKey);
+            if (result.isPresent()) {
+                return result;
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Agrupadas órfãs: concluídas com o resultado já registrado ou reagrupadas a outra líder ativa.
+    // Devolve as que ficaram sem líder e precisam ser executadas por conta própria
+    @Transactional
+    public List<Long> resolveOrphanedFollowers(List<Long> ids) {
+        List<ProcessingTask> completed = new ArrayList<>();
+        List<Long> detached = new ArrayList<>();
+        List<ProcessingTask> tasks = processingTaskRepository.findWithDetailsByIdIn(ids);
+        for (ProcessingTask task : tasks) {
+            if (task.getStatus() != ProcessingTask.TaskStatus.PENDING || task.getCoalescedInto() == null) {
+                continue;
+            }
+            task.setCoalescedInto(null);
+            if (task.getResultKey() != null && reuseResult(task, task.getResultKey())) {
+                completed.add(task);
+            } else if (task.getCoalescedInto() == null) {
+                detached.add(task.getId());
+            }
+        }
+        processingTaskRepository.saveAll(tasks);
+        if (!completed.isEmpty()) {
+            eventPublisher.publishEvent(new CoalescedTasksCompletedEvent(completed));
+        }
+        return detached;
+    }
+
+    // A líder falhou de vez: as agrupadas voltam a ser tarefas independentes, com suas próprias tentativas
+    private void releaseFollowers(ProcessingTask task) {
+        if (task.getResultKey() == null) {
+            return;
+        }
+        List<ProcessingTask> followers = processingTaskRepository.findByCoalescedIntoAndStatus(task.getId(),
+                ProcessingTask.TaskStatus.PENDING);
+        for (ProcessingTask follower : followers) {
+            follower.setCoalescedInto(null);
+            taskDispatcher.requeue(follower);
+        }
+        processingTaskRepository.saveAll(followers);
+        if (!followers.isEmpty()) {
+            log.info("{} tarefas agrupadas à tarefa {} liberadas para execução própria", followers.size(), task.getId());
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onCoalescedTasksCompleted(CoalescedTasksCompletedEvent event) {
+        for (ProcessingTask task : event.getTasks()) {
+            emailService.sendProcessingCompletedEmail(task.getOriginalImage().getOwner().getEmail(),
+                    task.getOriginalImage().getOriginalFilename(), "");
+        }
+    }
+
+    // SHA-256 do conteúdo da imagem e da configuração normalizada; nula para imagens sem hash de conteúdo
+    private String resultKey(Image image, ProcessingConfig config) {
+        if (!memoizationEnabled || image.getContentHash() == null) {
+            return null;
+        }
+        return ResultKeys.compute(image.getContentHash(), config.isResizeEnabled(), config.getResizePercentage(),
+                config.getResizeMethod(), defaultResizeMethod, config.isGrayscaleEnabled(),
+                FileNames.extension(image.getOriginalFilename()));
+    }
+
+    public List<DeadLetterDTO> getDeadLetters(int limit) {
+        return taskDispatcher.getDeadLetters(limit);
+    }
+
+    public int replayDeadLetters(int limit) {
+        return taskDispatcher.replayDeadLetters(limit);
+    }
+
+    @Scheduled(fixedDelayString = "${app.processing.priority.starvation-check-interval-ms:30000}")
+    public void requeueStarvedTasks() {
+        // Agendado em todos os nós: sem a trava, cada nó republicaria as mesmas tarefas no mesmo ciclo
+        if (!schedulerLockService.tryAcquire(STARVATION_LOCK_NAME, workerLeases.getNodeId(),
+                Duration.ofMillis(starvationCheckIntervalMillis * 9 / 10))) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> requeueStarved());
+    }
+
+    private void requeueStarved() {
+        LocalDateTime threshold = LocalDateTime.now().minus(starvationThresholdMillis, ChronoUnit.MILLIS);
+        List<ProcessingTask> starved = processingTaskRepository.findByStatusAndPriorityLessThanAndCreatedAtBefore(
+                ProcessingTask.TaskStatus.PENDING, RabbitMQConfig.MAX_PRIORITY, threshold);
+
+        // A mensagem original continua na fila; quem chegar primeiro processa e a outra é descartada pelo consumidor.
+        // Tarefas ainda retidas na fila justa não estão sendo preteridas pela prioridade e ficam onde estão
+        // No modo de fila em banco a própria prioridade elevada antecipa a tarefa na próxima leitura
+        // Tarefas aguardando a espera de uma retentativa ou agrupadas a uma execução idêntica também ficam de fora
+        LocalDateTime now = LocalDateTime.now();
+        int requeued = 0;
+        for (ProcessingTask task : starved) {
+            if (taskDispatcher.isQueued(task.getId()) || task.getCoalescedInto() != null
+                    || (task.getNextAttemptAt() != null && task.getNextAttemptAt().isAfter(now))) {
+                continue;
+            }
+            task.setPriority(RabbitMQConfig.MAX_PRIORITY);
+            taskDispatcher.requeue(task);
+            requeued++;
+        }
+        if (requeued > 0) {
+            log.info("{} tarefas pendentes republicadas com prioridade máxima", requeued);
+        }
+    }
+
+    public List<TenantQueueStatsDTO> getTenantQueueStats() {
+        return taskDispatcher.getStats();
+    }
+
+    private int resolveWeight(User user) {
+        Subscription subscription = user.getSubscription();
+        if (subscription != null && subscription.isActive() && subscription.getPlan().getSchedulingWeight() != null) {
+            return subscription.getPlan().getSchedulingWeight();
+        }
+        return 1;
+    }
+
+    private int resolvePriority(User user) {
+        Subscription subscription = user.getSubscription();
+        if (subscription != null && subscription.isActive() && subscription.getPlan().isPremium()) {
+            return premiumPriority;
+        }
+        return standardPriority;
     }
 
     private ProcessingResponseDTO mapTaskToDto(ProcessingTask task) {
@@ -136,10 +587,34 @@ public class ProcessingService {
             configDTO = ProcessingResponseDTO.ProcessingConfigDTO.builder()
                     .resizeEnabled(task.getProcessingConfig().isResizeEnabled())
                     .resizePercentage(task.getProcessingConfig().getResizePercentage())
+                    .resizeMethod(task.getProcessingConfig().getResizeMethod())
                     .grayscaleEnabled(task.getProcessingConfig().isGrayscaleEnabled())
                     .build();
         }
 
+        List<ProcessingResponseDTO.VariantResultDTO> variantDTOs = null;
+        if (!task.getVariants().isEmpty()) {
+            variantDTOs = task.getVariants().stream()
+                    .map(variant -> ProcessingResponseDTO.VariantResultDTO.builder()
+                            .name(variant.getName())
+                            .resizePercentage(variant.getResizePercentage())
+                            .grayscaleEnabled(variant.isGrayscaleEnabled())
+                            .resizeMethod(variant.getResizeMethod())
+                            .width(variant.getWidth())
+                            .height(variant.getHeight())
+                            .resultImageUrl(variant.getResultImagePath() == null ? null
+                                    : ServletUriComponentsBuilder.fromCurrentContextPath()
+                                    .path("/api/processing/")
+                                    .path(task.getId().toString())
+                                    .path("/variants/")
+                                    .path(variant.getName())
+                                    .path("/result")
+                                    .build()
+                                    .toString())
+                            .build())
+                    .toList();
+        }
+
         return ProcessingResponseDTO.builder()
                 .taskId(task.getId())
                 .imageId(task.getOriginalImage().getId())
@@ -150,6 +625,7 @@ public class ProcessingService {
                 .createdAt(task.getCreatedAt())
                 .completedAt(task.getCompletedAt())
                 .config(configDTO)
+                .variants(variantDTOs)
                 .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,219 @@
+package com.imageprocessor.service;
+
+import com.imageprocessor.model.Image;
+import com.imageprocessor.model.ImagePyramidLevel;
+import com.imageprocessor.queue.WorkerLeases;
+import com.imageprocessor.repository.ImagePyramidLevelRepository;
+import com.imageprocessor.repository.ImageRepository;
+import com.imageprocessor.util.FileNames;
+import com.imageprocessor.util.ImageProcessor;
+import com.imageprocessor.util.ImageVariant;
+import com.imageprocessor.util.ResizeMethod;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.awt.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PyramidService {
+
+    // 1/2, 1/4 e aproximadamente 1/8 da original
+    private static final int[] LEVEL_PERCENTAGES = {50, 25, 12};
+
+    private static final String EVICTION_LOCK_NAME = "pyramid-eviction";
+
+    private final ImageRepository imageRepository;
+    private final ImagePyramidLevelRepository pyramidLevelRepository;
+    private final StorageService storageService;
+    private final ImageProcessor imageProcessor;
+    private final SchedulerLockService schedulerLockService;
+    private final WorkerLeases workerLeases;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.processing.pyramid.enabled:false}")
+    private boolean enabled;
+
+    // Originais menores que isso não ganham pirâmide: decodificá-las já é barato
+    @Value("${app.processing.pyramid.min-source-pixels:4000000}")
+    private long minSourcePixels;
+
+    @Value("${app.processing.pyramid.max-total-bytes:1073741824}")
+    private long maxTotalBytes;
+
+    // Níveis usados há menos tempo que isso não são descartados: podem ter acabado de ser entregues a uma tarefa
+    @Value("${app.processing.pyramid.eviction-grace-ms:600000}")
+    private long evictionGraceMillis;
+
+    @Value("${app.processing.pyramid.eviction-batch-size:100}")
+    private int evictionBatchSize;
+
+    // Limite da trava caso o nó caia no meio do descarte; ao terminar ela é devolvida
+    @Value("${app.processing.pyramid.eviction-lock-ms:300000}")
+    private long evictionLockMillis;
+
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onImageUploaded(ImageUploadedEvent event) {
+        if (enabled) {
+            buildPyramid(event.getImageId());
+        }
+    }
+
+    public void buildPyramid(Long imageId) {
+        Image image = imageRepository.findById(imageId).orElse(null);
+        if (image == null || pyramidLevelRepository.existsByImage_Id(imageId)) {
+            return;
+        }
+
+        List<String> filenames = new ArrayList<>();
+        try {
+            Path originalPath = storageService.getFilePath(image.getStoragePath());
+            Dimension originalSize;
+            if (image.getWidth() != null) {
+                originalSize = new Dimension(image.getWidth(), image.getHeight());
+            } else {
+                // Imagens enviadas antes do registro de metadados no upload
+                originalSize = imageProcessor.readSize(originalPath);
+                imageRepository.updateDimensions(imageId, originalSize.width, originalSize.height);
+            }
+
+            if ((long) originalSize.width * originalSize.height < minSourcePixels) {
+                log.debug("Imagem {} pequena demais para pirâmide: {}x{}", imageId, originalSize.width, originalSize.height);
+                return;
+            }
+
+            // Todos os níveis saem de uma única decodificação, cada um reduzido a partir do anterior
+            String extension = FileNames.extension(image.getStoragePath());
+            List<ImageVariant> outputs = new ArrayList<>();
+            for (int percentage : LEVEL_PERCENTAGES) {
+                String filename = UUID.randomUUID().toString() + extension;
+                filenames.add(filename);
+                outputs.add(new ImageVariant(percentage, ResizeMethod.LANCZOS3, false, storageService.newFilePath(filename)));
+            }
+            List<Dimension> sizes = imageProcessor.processVariants(originalPath, outputs);
+
+            LocalDateTime now = LocalDateTime.now();
+            List<ImagePyramidLevel> levels = new ArrayList<>();
+            for (int i = 0; i < LEVEL_PERCENTAGES.length; i++) {
+                levels.add(ImagePyramidLevel.builder()
+                        .image(imageRepository.getReferenceById(imageId))
+                        .percentage(LEVEL_PERCENTAGES[i])
+                        .storagePath(filenames.get(i))
+                        .width(sizes.get(i).width)
+                        .height(sizes.get(i).height)
+                        .size(Files.size(outputs.get(i).getTargetPath()))
+                        .lastUsedAt(now)
+                        .build());
+            }
+            pyramidLevelRepository.saveAll(levels);
+            log.info("Pirâmide de resoluções gerada para imagem {}: {} níveis", imageId, levels.size());
+        } catch (Exception e) {
+            // A pirâmide é apenas uma otimização; as tarefas continuam usando a original
+            log.warn("Falha ao gerar pirâmide para imagem {}", imageId, e);
+            filenames.forEach(storageService::deleteFile);
+            return;
+        }
+
+        evictLevels();
+    }
+
+    public Optional<ImagePyramidLevel> selectLevel(Image image, int percentage) {
+        if (!enabled || image.getWidth() == null || percentage >= 100) {
+            return Optional.empty();
+        }
+        int targetWidth = Math.max(1, image.getWidth() * percentage / 100);
+        int targetHeight = Math.max(1, image.getHeight() * percentage / 100);
+
+        // O menor nível que ainda cobre o tamanho pedido
+        for (ImagePyramidLevel level : pyramidLevelRepository.findByImage_IdOrderByWidthAsc(image.getId())) {
+            if (level.getWidth() >= targetWidth && level.getHeight() >= targetHeight
+                    && Files.isReadable(storageService.getFilePath(level.getStoragePath()))
+                    // Sem linha atualizada o nível acabou de ser descartado
+                    && pyramidLevelRepository.markUsed(level.getId(), LocalDateTime.now()) == 1) {
+                log.debug("Tarefa da imagem {} usará o nível de {}% da pirâmide", image.getId(), level.getPercentage());
+                return Optional.of(level);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Scheduled(fixedDelayString = "${app.processing.pyramid.eviction-interval-ms:600000}")
+    public void evictLevels() {
+        if (!enabled) {
+            return;
+        }
+        if (pyramidLevelRepository.sumSize() <= maxTotalBytes) {
+            return;
+        }
+        // Agendado em todos os nós e chamado após cada geração: um descarte por vez no cluster
+        if (!schedulerLockService.tryAcquire(EVICTION_LOCK_NAME, workerLeases.getNodeId(),
+                Duration.ofMillis(evictionLockMillis))) {
+            return;
+        }
+        try {
+            evictLeastRecentlyUsed();
+        } finally {
+            schedulerLockService.release(EVICTION_LOCK_NAME, workerLeases.getNodeId());
+        }
+    }
+
+    // Descartar os níveis usados há mais tempo até voltar ao limite de armazenamento
+    private void evictLeastRecentlyUsed() {
+        long total = pyramidLevelRepository.sumSize();
+        LocalDateTime usedBefore = LocalDateTime.now().minus(evictionGraceMillis, ChronoUnit.MILLIS);
+        int evicted = 0;
+        while (total > maxTotalBytes) {
+            long excess = total - maxTotalBytes;
+            EvictedPage page = transactionTemplate.execute(status -> evictPage(usedBefore, excess));
+            total -= page.freedBytes();
+            evicted += page.evicted();
+            // Os restantes estão na janela de carência ou foram excluídos por outro caminho
+            if (page.candidates() < evictionBatchSize || page.evicted() == 0) {
+                break;
+            }
+        }
+        log.info("{} níveis de pirâmide descartados; armazenamento atual: {} bytes", evicted, total);
+    }
+
+    // Uma transação curta por página: os arquivos só saem do disco depois que as linhas somem de vez,
+    // e uma tarefa que marcou o nível como usado antes disso mantém a linha e o arquivo
+    private EvictedPage evictPage(LocalDateTime usedBefore, long excess) {
+        List<ImagePyramidLevel> candidates = pyramidLevelRepository.findByLastUsedAtBeforeOrderByLastUsedAtAsc(
+                usedBefore, PageRequest.of(0, evictionBatchSize));
+        int evicted = 0;
+        long freed = 0;
+        for (ImagePyramidLevel level : candidates) {
+            if (freed >= excess) {
+                break;
+            }
+            if (pyramidLevelRepository.deleteIfUnusedSince(level.getId(), usedBefore) == 1) {
+                storageService.deleteAfterCommit(level.getStoragePath());
+                freed += level.getSize();
+                evicted++;
+            }
+        }
+        return new EvictedPage(candidates.size(), evicted, freed);
+    }
+
+    private record EvictedPage(int candidates, int evicted, long freedBytes) {
+    }
+}
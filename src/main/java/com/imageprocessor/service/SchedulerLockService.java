@@ -0,0 +1,38 @@
+package com.imageprocessor.service;
+
+import com.imageprocessor.model.SchedulerLock;
+import com.imageprocessor.repository.SchedulerLockRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SchedulerLockService {
+
+    private final SchedulerLockRepository schedulerLockRepository;
+
+    // A trava não é liberada ao final: fica com quem agiu até vencer, o que limita a uma execução por intervalo no cluster
+    public boolean tryAcquire(String name, String owner, Duration hold) {
+        LocalDateTime now = LocalDateTime.now();
+        if (!schedulerLockRepository.existsById(name)) {
+            try {
+                schedulerLockRepository.saveAndFlush(SchedulerLock.builder().name(name).lockedUntil(now.minusSeconds(1)).build());
+            } catch (DataIntegrityViolationException e) {
+                // Outro nó criou a linha primeiro
+                log.debug("Trava {} criada por outro nó", name);
+            }
+        }
+        return schedulerLockRepository.acquire(name, owner, now, now.plus(hold)) == 1;
+    }
+
+    // Para jobs que só precisam de exclusão mútua, e não de uma execução por intervalo: a trava é devolvida ao terminar
+    public void release(String name, String owner) {
+        schedulerLockRepository.release(name, owner, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,163 @@
+package com.imageprocessor.service;
+
+import com.imageprocessor.queue.WorkerLeases;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Replica os arquivos da disposição plana antiga na fan-out em lotes limitados por intervalo e remove a cópia
+// antiga depois de uma carência. A listagem da raiz é percorrida em páginas ao longo dos ciclos; terminada uma
+// passada, a próxima só começa após recheck-interval-ms, para pegar arquivos gravados por nós com a versão anterior.
+// Agendado em todos os nós; a trava em banco faz com que só um migre arquivos por ciclo
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StorageLayoutMigrator {
+
+    private static final String LOCK_NAME = "storage-layout-migration";
+
+    private final StorageService storageService;
+    private final SchedulerLockService schedulerLockService;
+    private final WorkerLeases workerLeases;
+
+    @Value("${app.upload.migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.upload.migration.interval-ms:10000}")
+    private long intervalMillis;
+
+    // Entradas da listagem examinadas por ciclo, para não disputar o disco com o processamento
+    @Value("${app.upload.migration.batch-size:500}")
+    private int batchSize;
+
+    // Arquivos mais novos que isso podem ainda estar sendo gravados por um nó com a versão anterior
+    @Value("${app.upload.migration.min-age-ms:60000}")
+    private long minAgeMillis;
+
+    // Tempo que a cópia plana sobrevive à replicação, para leitores que já tinham resolvido o caminho antigo
+    @Value("${app.upload.migration.grace-ms:300000}")
+    private long graceMillis;
+
+    // Intervalo entre o fim de uma passada pela raiz e o início da seguinte
+    @Value("${app.upload.migration.recheck-interval-ms:3600000}")
+    private long recheckIntervalMillis;
+
+    // Passada em andamento: retomada do ponto em que parou no ciclo anterior
+    private DirectoryStream<Path> listing;
+    private Iterator<Path> cursor;
+    private long nextPassAt;
+
+    // Arquivos já replicados neste nó, com o instante da replicação, aguardando a carência
+    private final Map<String, Long> replicatedAt = new LinkedHashMap<>();
+
+    @Scheduled(fixedDelayString = "${app.upload.migration.interval-ms:10000}",
+            initialDelayString = "${app.upload.migration.interval-ms:10000}")
+    public synchronized void migrateBatch() {
+        if (!enabled) {
+            return;
+        }
+        if (!schedulerLockService.tryAcquire(LOCK_NAME, workerLeases.getNodeId(),
+                Duration.ofMillis(intervalMillis * 9 / 10))) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        removeExpiredLegacyCopies(now);
+
+        if (cursor == null) {
+            if (now < nextPassAt || !openListing()) {
+                return;
+            }
+        }
+
+        long cutoff = now - minAgeMillis;
+        int examined = 0;
+        int replicated = 0;
+        try {
+            while (examined < batchSize && cursor.hasNext()) {
+                Path entry = cursor.next();
+                examined++;
+                String filename = entry.getFileName().toString();
+                // Os mais novos ficam para a próxima passada; até lá são lidos na disposição plana
+                if (replicatedAt.containsKey(filename) || Files.getLastModifiedTime(entry).toMillis() > cutoff) {
+                    continue;
+                }
+                if (storageService.migrateToShardedLayout(filename)) {
+                    replicatedAt.put(filename, now);
+                    replicated++;
+                }
+            }
+        } catch (IOException | DirectoryIteratorException e) {
+            log.warn("Falha ao listar arquivos para migração de disposição", e);
+            closeListing();
+            nextPassAt = now + intervalMillis;
+            return;
+        }
+
+        if (replicated > 0) {
+            log.info("{} arquivos replicados na disposição fan-out", replicated);
+        }
+        if (!cursor.hasNext()) {
+            closeListing();
+            nextPassAt = now + recheckIntervalMillis;
+            log.info("Passada de migração para a disposição fan-out concluída");
+        }
+    }
+
+    private void removeExpiredLegacyCopies(long now) {
+        Iterator<Map.Entry<String, Long>> entries = replicatedAt.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<String, Long> entry = entries.next();
+            // Ordem de inserção: a partir do primeiro ainda na carência, todos os seguintes também estão
+            if (entry.getValue() + graceMillis > now) {
+                break;
+            }
+            storageService.removeLegacyCopy(entry.getKey());
+            entries.remove();
+        }
+    }
+
+    private boolean openListing() {
+        Path root = storageService.getRootPath();
+        if (!Files.isDirectory(root)) {
+            nextPassAt = System.currentTimeMillis() + recheckIntervalMillis;
+            return false;
+        }
+        try {
+            // Apenas os arquivos soltos na raiz; as pastas de fan-out e de temporários não entram na listagem
+            listing = Files.newDirectoryStream(root, entry -> Files.isRegularFile(entry));
+            cursor = listing.iterator();
+            return true;
+        } catch (IOException e) {
+            log.warn("Falha ao listar arquivos para migração de disposição", e);
+            nextPassAt = System.currentTimeMillis() + intervalMillis;
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public synchronized void closeListing() {
+        if (listing != null) {
+            try {
+                listing.close();
+            } catch (IOException e) {
+                log.debug("Falha ao fechar a listagem de migração", e);
+            }
+        }
+        listing = null;
+        cursor = null;
+    }
+}
@@ -1,28 +1,55 @@
 package com.imageprocessor.service;
 
+import com.imageprocessor.dto.StoredFile;
 import com.imageprocessor.exception.InvalidImageException;
+import com.imageprocessor.model.StoredBlob;
+import com.imageprocessor.repository.StoredBlobRepository;
+import com.imageprocessor.util.ImageMetadata;
+import com.imageprocessor.util.ImageProcessor;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.UUID;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class StorageService {
 
+    // Temporários de upload ficam fora das pastas de fan-out, no mesmo volume para o rename atômico
+    private static final String TEMP_DIR = "tmp";
+
+    private final ImageProcessor imageProcessor;
+    private final StoredBlobRepository storedBlobRepository;
+
     @Value("${app.upload.dir:uploads}")
     private String uploadDir;
 
-    public String storeFile(MultipartFile file) {
+    // Conteúdo já armazenado não é gravado de novo: a imagem passa a referenciar o arquivo existente.
+    // A referência é tomada na transação do upload, antes de o arquivo ser colocado no lugar
+    @Transactional(propagation = Propagation.MANDATORY)
+    public StoredFile storeFile(MultipartFile file) {
         // Verificar se o arquivo é válido
         if (file.isEmpty()) {
             throw new InvalidImageException("Não é possível armazenar um arquivo vazio");
@@ -40,48 +67,268 @@ public class StorageService {
             throw new InvalidImageException("O nome do arquivo contém um caminho inválido: " + originalFilename);
         }
 
-        // Gerar um novo nome para o arquivo para evitar colisões
-        String fileExtension = getFileExtension(originalFilename);
-        String newFilename = UUID.randomUUID().toString() + fileExtension;
-
+        Path tempLocation = null;
         try {
             // Criar diretório de upload se não existir
-            Path uploadPath = Paths.get(uploadDir).toAbsolutePath().normalize();
-            Files.createDirectories(uploadPath);
+            Path uploadPath = getRootPath();
+            Path tempPath = uploadPath.resolve(TEMP_DIR);
+            Files.createDirectories(tempPath);
 
-            // Copiar o arquivo para o diretório de destino
-            Path targetLocation = uploadPath.resolve(newFilename);
-            try (InputStream inputStream = file.getInputStream()) {
-                Files.copy(inputStream, targetLocation, StandardCopyOption.REPLACE_EXISTING);
+            // Copiar para um arquivo temporário no mesmo volume, calculando o SHA-256 do conteúdo na mesma passada
+            tempLocation = Files.createTempFile(tempPath, "upload-", ".tmp");
+            MessageDigest digest = sha256();
+            try (InputStream inputStream = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(inputStream, tempLocation, StandardCopyOption.REPLACE_EXISTING);
             }
 
-            log.info("Arquivo armazenado com sucesso: {}", newFilename);
-            return newFilename;
+            // Ler apenas o cabeçalho: dimensões e formato ficam conhecidos sem decodificar os pixels
+            ImageMetadata metadata = probe(tempLocation, originalFilename);
+
+            // O nome depende só do conteúdo; a extensão vem do formato detectado, não do nome enviado
+            String contentHash = HexFormat.of().formatHex(digest.digest());
+            String storagePath = contentHash.substring(0, 2) + "/" + contentHash.substring(2, 4) + "/"
+                    + contentHash + "." + metadata.getFormat();
+            acquireBlob(contentHash, storagePath, file.getSize());
+
+            Path targetLocation = uploadPath.resolve(storagePath);
+            boolean stored = placeBlob(tempLocation, targetLocation);
+            tempLocation = null;
+            if (stored) {
+                // Sem o commit o registro desaparece; o arquivo recém-colocado não pode ficar sem dono
+                deleteOnRollback(storagePath);
+            }
+
+            log.info("Arquivo {}: {} ({}x{} {})", stored ? "armazenado com sucesso" : "já armazenado, reaproveitado",
+                    storagePath, metadata.getWidth(), metadata.getHeight(), metadata.getFormat());
+            return StoredFile.builder()
+                    .storagePath(storagePath)
+                    .width(metadata.getWidth())
+                    .height(metadata.getHeight())
+                    .format(metadata.getFormat())
+                    .bitDepth(metadata.getBitDepth())
+                    .frameCount(metadata.getFrameCount())
+                    .contentHash(contentHash)
+                    .build();
         } catch (IOException e) {
             log.error("Falha ao armazenar arquivo: {}", originalFilename, e);
             throw new InvalidImageException("Falha ao armazenar o arquivo: " + e.getMessage());
+        } finally {
+            deleteQuietly(tempLocation);
+        }
+    }
+
+    // Devolve a referência da imagem ao conteúdo; o arquivo só sai do disco com a última referência.
+    // Arquivos sem registro (enviados antes da deduplicação) pertencem a uma única imagem e são removidos direto
+    public void releaseFile(String storagePath, String contentHash) {
+        Optional<StoredBlob> blob = contentHash == null ? Optional.empty()
+                : storedBlobRepository.findByContentHash(contentHash)
+                .filter(existing -> existing.getStoragePath().equals(storagePath));
+        if (blob.isEmpty()) {
+            deleteFile(storagePath);
+            return;
+        }
+        storedBlobRepository.addReferences(blob.get().getId(), -1);
+        if (storedBlobRepository.deleteIfUnreferenced(blob.get().getId()) == 1) {
+            deleteAfterCommit(storagePath);
+            log.info("Última referência ao arquivo {} removida", storagePath);
+        }
+    }
+
+    // Remove registros de conteúdo sem referências e seus arquivos; devolve quantos foram removidos
+    @Transactional
+    public int sweepUnreferencedBlobs(int limit) {
+        int removed = 0;
+        for (StoredBlob blob : storedBlobRepository.findByRefCountLessThanEqualOrderByIdAsc(0, PageRequest.of(0, limit))) {
+            // Um upload pode ter voltado a referenciar o conteúdo desde a leitura
+            if (storedBlobRepository.deleteIfUnreferenced(blob.getId()) == 1) {
+                deleteAfterCommit(blob.getStoragePath());
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    // O arquivo só sai do disco depois do commit: num rollback o registro volta e continua apontando para ele
+    public void deleteAfterCommit(String storagePath) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deleteFile(storagePath);
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deleteFile(storagePath);
+            }
+        });
+    }
+
+    private void deleteOnRollback(String storagePath) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    deleteFile(storagePath);
+                }
+            }
+        });
+    }
+
+    private void acquireBlob(String contentHash, String storagePath, long size) {
+        // Um registro removido entre a leitura e o incremento é recriado na volta seguinte
+        for (int attempt = 0; attempt < 3; attempt++) {
+            Optional<StoredBlob> blob = storedBlobRepository.findByContentHash(contentHash);
+            if (blob.isEmpty()) {
+                if (!storedBlobRepository.insertIfAbsent(contentHash, storagePath, size)) {
+                    // Outro upload do mesmo conteúdo criou o registro primeiro
+                    log.debug("Registro do conteúdo {} criado por outro upload", contentHash);
+                }
+                blob = storedBlobRepository.findByContentHash(contentHash);
+            }
+            if (blob.isPresent() && storedBlobRepository.addReferences(blob.get().getId(), 1) == 1) {
+                return;
+            }
+        }
+        throw new IllegalStateException("Não foi possível registrar o conteúdo " + contentHash);
     }
 
+    // Depois da referência tomada, uma exclusão concorrente não remove mais o arquivo; se ele já estiver lá, o temporário sai
+    private boolean placeBlob(Path tempLocation, Path targetLocation) throws IOException {
+        if (Files.exists(targetLocation)) {
+            Files.delete(tempLocation);
+            return false;
+        }
+        Files.createDirectories(targetLocation.getParent());
+        try {
+            Files.move(tempLocation, targetLocation, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Upload concorrente do mesmo conteúdo colocou o arquivo primeiro; os bytes são os mesmos
+            Files.delete(tempLocation);
+            return false;
+        }
+        return true;
+    }
+
+    private void deleteQuietly(Path location) {
+        if (location == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(location);
+        } catch (IOException e) {
+            log.warn("Falha ao excluir arquivo temporário: {}", location, e);
+        }
+    }
+
+    private ImageMetadata probe(Path location, String originalFilename) throws IOException {
+        try {
+            return imageProcessor.probe(location);
+        } catch (InvalidImageException | IOException e) {
+            Files.deleteIfExists(location);
+            log.warn("Cabeçalho de imagem ilegível: {}", originalFilename, e);
+            throw new InvalidImageException("Formato de imagem não suportado ou arquivo corrompido: " + originalFilename);
+        }
+    }
+
+    private MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+
+    // Resolve as duas disposições sem listar diretórios: a fan-out e, enquanto a migração não termina, a plana
     public Path getFilePath(String filename) {
-        return Paths.get(uploadDir).toAbsolutePath().normalize().resolve(filename);
+        Path root = getRootPath();
+        Path sharded = root.resolve(shardedName(filename));
+        if (filename.indexOf('/') >= 0 || Files.exists(sharded)) {
+            return sharded;
+        }
+        Path legacy = root.resolve(filename);
+        return Files.exists(legacy) ? legacy : sharded;
     }
 
-    public boolean deleteFile(String filename) {
+    // Destino de um arquivo novo, já na disposição fan-out
+    public Path newFilePath(String filename) throws IOException {
+        Path path = getRootPath().resolve(shardedName(filename));
+        Files.createDirectories(path.getParent());
+        return path;
+    }
+
+    Path getRootPath() {
+        return Paths.get(uploadDir).toAbsolutePath().normalize();
+    }
+
+    // Replica um arquivo da disposição plana na fan-out sem removê-lo: leitores que já resolveram o caminho antigo
+    // continuam a abri-lo até removeLegacyCopy. Hard link quando o sistema de arquivos permite, senão cópia
+    boolean migrateToShardedLayout(String filename) {
+        Path root = getRootPath();
+        Path legacy = root.resolve(filename);
+        Path target = root.resolve(shardedName(filename));
         try {
-            Path filePath = getFilePath(filename);
-            return Files.deleteIfExists(filePath);
+            Files.createDirectories(target.getParent());
+            try {
+                Files.createLink(target, legacy);
+            } catch (NoSuchFileException | FileAlreadyExistsException e) {
+                throw e;
+            } catch (UnsupportedOperationException | IOException e) {
+                // Cópia em temporário e rename atômico: a fan-out nunca expõe um arquivo pela metade
+                Path tempPath = root.resolve(TEMP_DIR);
+                Files.createDirectories(tempPath);
+                Path temp = Files.createTempFile(tempPath, "migrate-", ".tmp");
+                try {
+                    Files.copy(legacy, temp, StandardCopyOption.REPLACE_EXISTING);
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+            }
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            // Replicado em um ciclo anterior; falta só remover a cópia antiga
+            return true;
+        } catch (NoSuchFileException e) {
+            // Excluído desde a listagem
+            return false;
         } catch (IOException e) {
-            log.error("Falha ao excluir arquivo: {}", filename, e);
+            log.warn("Falha ao migrar arquivo para a disposição fan-out: {}", filename, e);
             return false;
         }
     }
 
-    private String getFileExtension(String filename) {
-        int lastIndex = filename.lastIndexOf('.');
-        if (lastIndex == -1) {
-            return "";
+    // Remove a cópia plana de um arquivo já presente na fan-out
+    void removeLegacyCopy(String filename) {
+        Path root = getRootPath();
+        try {
+            if (Files.exists(root.resolve(shardedName(filename)))) {
+                Files.deleteIfExists(root.resolve(filename));
+            }
+        } catch (IOException e) {
+            log.warn("Falha ao remover arquivo da disposição plana: {}", filename, e);
+        }
+    }
+
+    // Dois níveis de prefixo hexadecimal derivados do nome (UUID ou hash do conteúdo): ab/cd/abcd....png.
+    // Caminhos que já trazem diretório (conteúdo deduplicado) são usados como estão
+    static String shardedName(String filename) {
+        if (filename.indexOf('/') >= 0) {
+            return filename;
+        }
+        String prefix = filename.length() >= 4 && filename.substring(0, 4).chars().allMatch(c -> Character.digit(c, 16) >= 0)
+                ? filename.substring(0, 4).toLowerCase()
+                : String.format("%08x", filename.hashCode());
+        return prefix.substring(0, 2) + "/" + prefix.substring(2, 4) + "/" + filename;
+    }
+
+    public boolean deleteFile(String filename) {
+        try {
+            // A plana primeiro: se a migração mover o arquivo entre as duas tentativas, ele é encontrado na fan-out
+            Path root = getRootPath();
+            boolean deleted = filename.indexOf('/') < 0 && Files.deleteIfExists(root.resolve(filename));
+            return Files.deleteIfExists(root.resolve(shardedName(filename))) || deleted;
+        } catch (IOException e) {
+            log.error("Falha ao excluir arquivo: {}", filename, e);
+            return false;
         }
-        return filename.substring(lastIndex);
     }
 }
\ No newline at end of file
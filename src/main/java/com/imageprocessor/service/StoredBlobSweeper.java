@@ -0,0 +1,55 @@
+package com.imageprocessor.service;
+
+import com.imageprocessor.queue.WorkerLeases;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Recolhe conteúdos armazenados que ficaram sem nenhuma imagem referenciando.
+// Agendado em todos os nós; a trava em banco faz com que só um varra por ciclo
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StoredBlobSweeper {
+
+    private static final String LOCK_NAME = "stored-blob-sweep";
+
+    private final StorageService storageService;
+    private final SchedulerLockService schedulerLockService;
+    private final WorkerLeases workerLeases;
+
+    @Value("${app.upload.blob-sweep.interval-ms:3600000}")
+    private long intervalMillis;
+
+    @Value("${app.upload.blob-sweep.batch-size:100}")
+    private int batchSize;
+
+    // Limite de lotes por ciclo, como no reaper
+    @Value("${app.upload.blob-sweep.max-batches:10}")
+    private int maxBatches;
+
+    @Scheduled(fixedDelayString = "${app.upload.blob-sweep.interval-ms:3600000}",
+            initialDelayString = "${app.upload.blob-sweep.interval-ms:3600000}")
+    public void sweep() {
+        if (!schedulerLockService.tryAcquire(LOCK_NAME, workerLeases.getNodeId(),
+                Duration.ofMillis(intervalMillis * 9 / 10))) {
+            return;
+        }
+
+        int removed = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            int found = storageService.sweepUnreferencedBlobs(batchSize);
+            removed += found;
+            if (found < batchSize) {
+                break;
+            }
+        }
+        if (removed > 0) {
+            log.info("{} conteúdos sem referências removidos", removed);
+        }
+    }
+}
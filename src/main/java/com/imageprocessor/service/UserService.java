@@ -117,6 +117,8 @@ public class UserService {
                 .isPremium(plan.isPremium())
                 .dailyQuota(plan.getDailyQuota())
                 .monthlyPrice(plan.getMonthlyPrice())
+                .maxPixels(plan.getMaxPixels())
+                .schedulingWeight(plan.getSchedulingWeight())
                 .build();
     }
 
@@ -0,0 +1,19 @@
+package com.imageprocessor.util;
+
+// Extensão usada nos arquivos gerados a partir de uma imagem: processamento, memoização e pirâmide
+public final class FileNames {
+
+    private static final String DEFAULT_EXTENSION = ".jpg";
+
+    private FileNames() {
+    }
+
+    // Extensão com o ponto; ".jpg" quando o nome não tem extensão
+    public static String extension(String filename) {
+        int lastIndex = filename.lastIndexOf('.');
+        if (lastIndex == -1) {
+            return DEFAULT_EXTENSION;
+        }
+        return filename.substring(lastIndex);
+    }
+}
@@ -0,0 +1,174 @@
+package com.imageprocessor.util;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.awt.color.ColorSpace;
+import java.awt.color.ICC_ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorConvertOp;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class GrayscaleConverter {
+
+    private static final int MAX_CACHED_OPS = 16;
+
+    private static final ColorSpace SRGB = ColorSpace.getInstance(ColorSpace.CS_sRGB);
+
+    // ColorConvertOp guarda estado interno durante o filter, por isso o cache é por thread
+    private final ThreadLocal<Map<ColorSpacePair, ColorConvertOp>> fallbackOps = ThreadLocal.withInitial(
+            () -> new LinkedHashMap<>(MAX_CACHED_OPS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<ColorSpacePair, ColorConvertOp> eldest) {
+                    return size() > MAX_CACHED_OPS;
+                }
+            });
+
+    private final TileExecutor tileExecutor;
+    private final PixelKernelSelector pixelKernelSelector;
+
+    public BufferedImage convert(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage grayscaleImage = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] target = ((DataBufferByte) grayscaleImage.getRaster().getDataBuffer()).getData();
+
+        Kernel kernel = selectKernel(image);
+        if (kernel == null) {
+            // Modelos de cor exóticos ou perfis ICC: converter para sRGB antes de aplicar a luma
+            log.debug("Conversão para escala de cinza via ColorConvertOp para modelo de cor: {}", image.getColorModel());
+            image = toSrgb(image);
+            kernel = selectKernel(image);
+        }
+
+        Raster source = image.getRaster();
+        Kernel selected = kernel;
+        tileExecutor.execute(width, height, (x, y, tileWidth, tileHeight) ->
+                selected.apply(source, target, y, tileHeight, width));
+        return grayscaleImage;
+    }
+
+    private Kernel selectKernel(BufferedImage image) {
+        ColorModel colorModel = image.getColorModel();
+        Raster raster = image.getRaster();
+        if (colorModel.isAlphaPremultiplied()) {
+            return null;
+        }
+
+        ColorSpace colorSpace = colorModel.getColorSpace();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+
+        if (colorModel instanceof ComponentColorModel
+                && raster.getSampleModel() instanceof ComponentSampleModel
+                && dataBuffer instanceof DataBufferByte
+                && dataBuffer.getNumBanks() == 1) {
+            if (colorSpace.getType() == ColorSpace.TYPE_GRAY && colorModel.getNumColorComponents() == 1) {
+                return this::copyGray;
+            }
+            if (colorSpace.isCS_sRGB() && colorModel.getNumColorComponents() == 3) {
+                return this::lumaFromBytes;
+            }
+        }
+
+        if (colorModel instanceof DirectColorModel
+                && colorSpace.isCS_sRGB()
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel
+                && dataBuffer instanceof DataBufferInt) {
+            return this::lumaFromInts;
+        }
+
+        return null;
+    }
+
+    private void copyGray(Raster source, byte[] target, int y, int rows, int width) {
+        ComponentSampleModel sampleModel = (ComponentSampleModel) source.getSampleModel();
+        byte[] data = ((DataBufferByte) source.getDataBuffer()).getData();
+        int pixelStride = sampleModel.getPixelStride();
+        int offset = sampleModel.getBandOffsets()[0];
+
+        for (int row = y; row < y + rows; row++) {
+            int index = rowStart(source, sampleModel.getScanlineStride(), pixelStride, row) + offset;
+            int out = row * width;
+            for (int x = 0; x < width; x++, index += pixelStride) {
+                target[out + x] = data[index];
+            }
+        }
+    }
+
+    private void lumaFromBytes(Raster source, byte[] target, int y, int rows, int width) {
+        ComponentSampleModel sampleModel = (ComponentSampleModel) source.getSampleModel();
+        byte[] data = ((DataBufferByte) source.getDataBuffer()).getData();
+        int pixelStride = sampleModel.getPixelStride();
+        int[] bandOffsets = sampleModel.getBandOffsets();
+        PixelKernels kernels = pixelKernelSelector.getKernels();
+
+        for (int row = y; row < y + rows; row++) {
+            int index = rowStart(source, sampleModel.getScanlineStride(), pixelStride, row);
+            kernels.lumaFromInterleavedBytes(data, index, pixelStride, bandOffsets[0], bandOffsets[1], bandOffsets[2],
+                    target, row * width, width);
+        }
+    }
+
+    private void lumaFromInts(Raster source, byte[] target, int y, int rows, int width) {
+        SinglePixelPackedSampleModel sampleModel = (SinglePixelPackedSampleModel) source.getSampleModel();
+        int[] data = ((DataBufferInt) source.getDataBuffer()).getData();
+        int[] bitOffsets = sampleModel.getBitOffsets();
+        PixelKernels kernels = pixelKernelSelector.getKernels();
+
+        for (int row = y; row < y + rows; row++) {
+            int index = rowStart(source, sampleModel.getScanlineStride(), 1, row);
+            kernels.lumaFromPackedInts(data, index, bitOffsets[0], bitOffsets[1], bitOffsets[2],
+                    target, row * width, width);
+        }
+    }
+
+    private int rowStart(Raster source, int scanlineStride, int pixelStride, int row) {
+        // Considera sub-rasters (getSubimage) e o deslocamento do DataBuffer
+        int sampleY = source.getMinY() + row - source.getSampleModelTranslateY();
+        int sampleX = source.getMinX() - source.getSampleModelTranslateX();
+        return source.getDataBuffer().getOffset() + sampleY * scanlineStride + sampleX * pixelStride;
+    }
+
+    private BufferedImage toSrgb(BufferedImage image) {
+        BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        ColorSpace source = image.getColorModel().getColorSpace();
+        ColorSpacePair key = new ColorSpacePair(ColorSpacePair.identity(source), ColorSpacePair.identity(SRGB));
+
+        tileExecutor.execute(image.getWidth(), image.getHeight(), (x, y, width, height) -> {
+            ColorConvertOp op = fallbackOps.get().computeIfAbsent(key, k -> new ColorConvertOp(source, SRGB, null));
+            op.filter(image.getSubimage(x, y, width, height), converted.getSubimage(x, y, width, height));
+        });
+        return converted;
+    }
+
+    @FunctionalInterface
+    private interface Kernel {
+        void apply(Raster source, byte[] target, int y, int rows, int width);
+    }
+
+    // Perfis ICC iguais vindos de imagens diferentes devem compartilhar a mesma entrada do cache
+    private record ColorSpacePair(Object source, Object target) {
+
+        static Object identity(ColorSpace colorSpace) {
+            if (colorSpace instanceof ICC_ColorSpace iccColorSpace) {
+                return ByteBuffer.wrap(iccColorSpace.getProfile().getData());
+            }
+            return colorSpace;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.imageprocessor.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class ImageMetadata {
+    private final int width;
+    private final int height;
+    private final String format;
+    // Bits por amostra de cada canal (8 ou 16 na maioria dos formatos)
+    private final int bitDepth;
+    // Quadros de GIF animado ou páginas de TIFF; 1 nos formatos de imagem única
+    private final int frameCount;
+}
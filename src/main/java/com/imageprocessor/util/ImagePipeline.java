@@ -0,0 +1,79 @@
+package com.imageprocessor.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ImagePipeline {
+
+    private final List<Operation> operations = new ArrayList<>();
+    private Dimension originalSize;
+
+    public static ImagePipeline create() {
+        return new ImagePipeline();
+    }
+
+    public ImagePipeline resize(int percentage) {
+        return resize(percentage, null);
+    }
+
+    public ImagePipeline resize(int percentage, ResizeMethod method) {
+        if (percentage < 1 || percentage > 100) {
+            throw new IllegalArgumentException("Porcentagem de redimensionamento inválida: " + percentage);
+        }
+        operations.add(new Operation(OperationType.RESIZE, percentage, method));
+        return this;
+    }
+
+    public ImagePipeline grayscale() {
+        operations.add(new Operation(OperationType.GRAYSCALE, null, null));
+        return this;
+    }
+
+    // Quando a origem é uma versão reduzida da imagem (nível da pirâmide), as porcentagens continuam relativas à original
+    public ImagePipeline originalSize(Dimension originalSize) {
+        this.originalSize = originalSize;
+        return this;
+    }
+
+    public Dimension getBaseSize(int sourceWidth, int sourceHeight) {
+        return originalSize != null ? originalSize : new Dimension(sourceWidth, sourceHeight);
+    }
+
+    public List<Operation> getOperations() {
+        return Collections.unmodifiableList(operations);
+    }
+
+    public double getScale() {
+        // Escala final acumulada das operações de redimensionamento
+        double scale = 1.0;
+        for (Operation operation : operations) {
+            if (operation.getType() == OperationType.RESIZE) {
+                scale *= operation.getPercentage() / 100.0;
+            }
+        }
+        return scale;
+    }
+
+    public boolean isEmpty() {
+        return operations.isEmpty();
+    }
+
+    public enum OperationType {
+        RESIZE,
+        GRAYSCALE
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Operation {
+        private final OperationType type;
+        private final Integer percentage;
+        // Nulo usa o método padrão configurado
+        private final ResizeMethod method;
+    }
+}
@@ -1,40 +1,57 @@
 package com.imageprocessor.util;
 
 import com.imageprocessor.exception.InvalidImageException;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.imgscalr.Scalr;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.awt.image.ColorConvertOp;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Component
+@RequiredArgsConstructor
 @Slf4j
 public class ImageProcessor {
 
-    public void resizeImage(Path sourcePath, Path targetPath, int percentage) throws IOException {
-        try {
-            BufferedImage originalImage = ImageIO.read(sourcePath.toFile());
-            if (originalImage == null) {
-                throw new InvalidImageException("Não foi possível ler a imagem: " + sourcePath);
-            }
+    // Formatos que podem trazer vários quadros (animação ou páginas); nos demais a imagem é sempre uma só
+    private static final Set<String> MULTI_FRAME_FORMATS = Set.of("gif", "tif", "tiff");
 
-            int targetWidth = originalImage.getWidth() * percentage / 100;
-            int targetHeight = originalImage.getHeight() * percentage / 100;
+    private final StreamingImageProcessor streamingImageProcessor;
+    private final GrayscaleConverter grayscaleConverter;
+    private final Resampler resampler;
+    private final PixelBudget pixelBudget;
 
-            BufferedImage resizedImage = Scalr.resize(originalImage, Scalr.Method.QUALITY, targetWidth, targetHeight);
+    @Value("${app.processing.streaming.pixel-threshold:50000000}")
+    private long streamingPixelThreshold;
 
-            String extension = getFileExtension(targetPath.getFileName().toString());
-            boolean success = ImageIO.write(resizedImage, extension, targetPath.toFile());
+    // Limite absoluto por imagem, verificado no cabeçalho antes de qualquer decodificação
+    @Value("${app.processing.max-pixels:250000000}")
+    private long maxPixels;
 
-            if (!success) {
-                throw new InvalidImageException("Formato de imagem não suportado para escrita: " + extension);
-            }
+    @Value("${app.processing.resize.default-method:SCALR}")
+    private ResizeMethod defaultResizeMethod;
+
+    public void resizeImage(Path sourcePath, Path targetPath, int percentage) throws IOException {
+        try {
+            process(sourcePath, targetPath, ImagePipeline.create().resize(percentage));
         } catch (IOException e) {
             log.error("Erro ao redimensionar imagem: {}", sourcePath, e);
             throw e;
@@ -43,30 +60,271 @@ public class ImageProcessor {
 
     public void convertToGrayscale(Path sourcePath, Path targetPath) throws IOException {
         try {
-            BufferedImage originalImage = ImageIO.read(sourcePath.toFile());
-            if (originalImage == null) {
-                throw new InvalidImageException("Não foi possível ler a imagem: " + sourcePath);
+            process(sourcePath, targetPath, ImagePipeline.create().grayscale());
+        } catch (IOException e) {
+            log.error("Erro ao converter imagem para escala de cinza: {}", sourcePath, e);
+            throw e;
+        }
+    }
+
+    public void process(Path sourcePath, Path targetPath, ImagePipeline pipeline) throws IOException {
+        if (pipeline.isEmpty()) {
+            throw new IllegalArgumentException("Nenhuma operação de processamento solicitada");
+        }
+
+        // Decodificar uma única vez, aplicar todas as operações em memória e codificar uma única vez
+        BufferedImage image;
+        int logicalWidth;
+        int logicalHeight;
+        PixelBudget.Reservation reservation = null;
+
+        try {
+            try (ImageInputStream input = ImageIO.createImageInputStream(sourcePath.toFile())) {
+                ImageReader reader = getReader(input, sourcePath);
+                try {
+                    int sourceWidth = reader.getWidth(0);
+                    int sourceHeight = reader.getHeight(0);
+                    Dimension baseSize = pipeline.getBaseSize(sourceWidth, sourceHeight);
+                    logicalWidth = baseSize.width;
+                    logicalHeight = baseSize.height;
+
+                    // Para reduções, decodificar direto na potência de dois mais próxima acima do tamanho final
+                    int subsampling = computeSubsampling(sourceScale(pipeline.getScale(), baseSize, sourceWidth, sourceHeight));
+
+                    // Imagens muito grandes são processadas em faixas, sem decodificar o raster inteiro
+                    long decodedPixels = (long) StreamingImageProcessor.ceilDiv(sourceWidth, subsampling)
+                            * StreamingImageProcessor.ceilDiv(sourceHeight, subsampling);
+                    reservation = reserve(reader, decodedPixels);
+                    if (decodedPixels > streamingPixelThreshold) {
+                        streamingImageProcessor.process(reader, subsampling, pipeline, streamingFilter(pipeline),
+                                targetPath, getFileExtension(targetPath.getFileName().toString()), this::toGrayscale);
+                        return;
+                    }
+
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    if (subsampling > 1) {
+                        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                        log.debug("Decodificando {} com subamostragem 1/{}", sourcePath, subsampling);
+                    }
+                    image = reader.read(0, param);
+                } finally {
+                    reader.dispose();
+                }
             }
 
-            BufferedImage grayscaleImage = new BufferedImage(
-                    originalImage.getWidth(), originalImage.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+            for (ImagePipeline.Operation operation : pipeline.getOperations()) {
+                switch (operation.getType()) {
+                    case RESIZE -> {
+                        logicalWidth = Math.max(1, logicalWidth * operation.getPercentage() / 100);
+                        logicalHeight = Math.max(1, logicalHeight * operation.getPercentage() / 100);
+                        image = resize(image, logicalWidth, logicalHeight, operation.getMethod());
+                    }
+                    case GRAYSCALE -> image = toGrayscale(image);
+                }
+            }
+
+            writeImage(image, targetPath);
+        } finally {
+            if (reservation != null) {
+                reservation.close();
+            }
+        }
+    }
 
-            ColorConvertOp op = new ColorConvertOp(
-                    originalImage.getColorModel().getColorSpace(),
-                    grayscaleImage.getColorModel().getColorSpace(),
-                    null);
+    public List<Dimension> processVariants(Path sourcePath, List<ImageVariant> variants) throws IOException {
+        return processVariants(sourcePath, null, variants);
+    }
+
+    public List<Dimension> processVariants(Path sourcePath, Dimension originalSize, List<ImageVariant> variants)
+            throws IOException {
+        if (variants.isEmpty()) {
+            throw new IllegalArgumentException("Nenhuma variante solicitada");
+        }
 
-            op.filter(originalImage, grayscaleImage);
+        // Da maior para a menor: cada variante é reduzida a partir do resultado intermediário anterior
+        List<ImageVariant> ordered = new ArrayList<>(variants);
+        ordered.sort(Comparator.comparingInt(ImageVariant::getPercentage).reversed());
 
-            String extension = getFileExtension(targetPath.getFileName().toString());
-            boolean success = ImageIO.write(grayscaleImage, extension, targetPath.toFile());
+        BufferedImage image;
+        int originalWidth;
+        int originalHeight;
+        Map<ImageVariant, Dimension> sizes = new HashMap<>();
+        PixelBudget.Reservation reservation = null;
+
+        try {
+            try (ImageInputStream input = ImageIO.createImageInputStream(sourcePath.toFile())) {
+                ImageReader reader = getReader(input, sourcePath);
+                try {
+                    int sourceWidth = reader.getWidth(0);
+                    int sourceHeight = reader.getHeight(0);
+                    Dimension baseSize = originalSize != null ? originalSize : new Dimension(sourceWidth, sourceHeight);
+                    originalWidth = baseSize.width;
+                    originalHeight = baseSize.height;
+                    int subsampling = computeSubsampling(
+                            sourceScale(ordered.get(0).getPercentage() / 100.0, baseSize, sourceWidth, sourceHeight));
 
-            if (!success) {
-                throw new InvalidImageException("Formato de imagem não suportado para escrita: " + extension);
+                    long decodedPixels = (long) StreamingImageProcessor.ceilDiv(sourceWidth, subsampling)
+                            * StreamingImageProcessor.ceilDiv(sourceHeight, subsampling);
+                    ImageVariant largest = ordered.get(0);
+                    long largestPixels = (long) Math.max(1, originalWidth * largest.getPercentage() / 100)
+                            * Math.max(1, originalHeight * largest.getPercentage() / 100);
+                    if (decodedPixels > streamingPixelThreshold && largestPixels <= streamingPixelThreshold) {
+                        // Uma única passada em faixas até o tamanho da maior variante; as demais saem dela em memória.
+                        // A reserva cobre as faixas e a maior variante com sua cópia de trabalho, de uma só vez
+                        checkPixelLimit(reader);
+                        reservation = pixelBudget.reserve(streamingImageProcessor.getWorkingBytes()
+                                + largestPixels * StreamingImageProcessor.bytesPerPixel(reader) * 2);
+                        ImagePipeline pipeline = ImagePipeline.create().originalSize(baseSize)
+                                .resize(largest.getPercentage(), largest.getMethod());
+                        image = streamingImageProcessor.decode(reader, subsampling, pipeline, streamingFilter(pipeline),
+                                this::toGrayscale);
+                    } else if (decodedPixels > streamingPixelThreshold) {
+                        // Nem a maior variante cabe em memória: cada uma é gerada por conta própria em faixas, relendo
+                        // a original, e process() reserva o orçamento de uma variante por vez
+                        image = null;
+                    } else {
+                        reservation = reserve(reader, decodedPixels);
+                        ImageReadParam param = reader.getDefaultReadParam();
+                        if (subsampling > 1) {
+                            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                        }
+                        image = reader.read(0, param);
+                    }
+                } finally {
+                    reader.dispose();
+                }
             }
-        } catch (IOException e) {
-            log.error("Erro ao converter imagem para escala de cinza: {}", sourcePath, e);
-            throw e;
+
+            for (ImageVariant variant : ordered) {
+                int width = Math.max(1, originalWidth * variant.getPercentage() / 100);
+                int height = Math.max(1, originalHeight * variant.getPercentage() / 100);
+                sizes.put(variant, new Dimension(width, height));
+
+                if (image == null) {
+                    process(sourcePath, variant.getTargetPath(), variant.toPipeline().originalSize(originalSize));
+                    continue;
+                }
+
+                image = resize(image, width, height, variant.getMethod());
+                writeImage(variant.isGrayscale() ? toGrayscale(image) : image, variant.getTargetPath());
+            }
+        } finally {
+            if (reservation != null) {
+                reservation.close();
+            }
+        }
+
+        log.debug("{} variantes geradas a partir de uma decodificação de {}", variants.size(), sourcePath);
+        return variants.stream().map(sizes::get).toList();
+    }
+
+    public Dimension readSize(Path sourcePath) throws IOException {
+        ImageMetadata metadata = probe(sourcePath);
+        return new Dimension(metadata.getWidth(), metadata.getHeight());
+    }
+
+    public ImageMetadata probe(Path sourcePath) throws IOException {
+        // Apenas o cabeçalho é lido; o raster não é decodificado
+        try (ImageInputStream input = ImageIO.createImageInputStream(sourcePath.toFile())) {
+            ImageReader reader = findReader(input, sourcePath);
+            String format = reader.getFormatName().toLowerCase();
+            boolean multiFrame = MULTI_FRAME_FORMATS.contains(format);
+            // O fluxo é sobre o arquivo e aceita busca: GIF e TIFF percorrem os cabeçalhos dos quadros para contá-los
+            reader.setInput(input, !multiFrame, true);
+            try {
+                Iterator<ImageTypeSpecifier> types = reader.getImageTypes(0);
+                int bitDepth = types.hasNext() ? types.next().getSampleModel().getSampleSize(0) : 8;
+                int frameCount = multiFrame ? Math.max(1, reader.getNumImages(true)) : 1;
+                return new ImageMetadata(reader.getWidth(0), reader.getHeight(0), format, bitDepth, frameCount);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    public BufferedImage resize(BufferedImage image, int targetWidth, int targetHeight) {
+        return resize(image, targetWidth, targetHeight, null);
+    }
+
+    public BufferedImage resize(BufferedImage image, int targetWidth, int targetHeight, ResizeMethod method) {
+        if (image.getWidth() == targetWidth && image.getHeight() == targetHeight) {
+            // A subamostragem na decodificação já entregou o tamanho final
+            return image;
+        }
+        ResizeMethod selected = method != null ? method : defaultResizeMethod;
+        if (selected == ResizeMethod.SCALR) {
+            return Scalr.resize(image, Scalr.Method.QUALITY, Scalr.Mode.FIT_EXACT, targetWidth, targetHeight);
+        }
+        return resampler.resize(image, targetWidth, targetHeight, selected.getFilter());
+    }
+
+    // Em faixas, os redimensionamentos são compostos numa única passada com o método da última operação
+    private ResampleFilter streamingFilter(ImagePipeline pipeline) {
+        ResizeMethod method = null;
+        for (ImagePipeline.Operation operation : pipeline.getOperations()) {
+            if (operation.getType() == ImagePipeline.OperationType.RESIZE && operation.getMethod() != null) {
+                method = operation.getMethod();
+            }
+        }
+        return (method != null ? method : defaultResizeMethod).getFilter();
+    }
+
+    public BufferedImage toGrayscale(BufferedImage image) {
+        return grayscaleConverter.convert(image);
+    }
+
+    private ImageReader getReader(ImageInputStream input, Path sourcePath) {
+        ImageReader reader = findReader(input, sourcePath);
+        reader.setInput(input, true, true);
+        return reader;
+    }
+
+    private ImageReader findReader(ImageInputStream input, Path sourcePath) {
+        Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : Collections.emptyIterator();
+        if (!readers.hasNext()) {
+            throw new InvalidImageException("Não foi possível ler a imagem: " + sourcePath);
+        }
+        return readers.next();
+    }
+
+    private PixelBudget.Reservation reserve(ImageReader reader, long decodedPixels) throws IOException {
+        checkPixelLimit(reader);
+        if (decodedPixels > streamingPixelThreshold) {
+            // Em faixas, apenas a memória de trabalho das faixas fica alocada
+            return pixelBudget.reserve(streamingImageProcessor.getWorkingBytes());
+        }
+        // Raster decodificado mais uma cópia de trabalho de no máximo o mesmo tamanho
+        return pixelBudget.reserve(decodedPixels * StreamingImageProcessor.bytesPerPixel(reader) * 2);
+    }
+
+    private void checkPixelLimit(ImageReader reader) throws IOException {
+        long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+        if (pixels > maxPixels) {
+            throw new InvalidImageException(String.format("Imagem de %dx%d excede o limite de %d pixels para processamento",
+                    reader.getWidth(0), reader.getHeight(0), maxPixels));
+        }
+    }
+
+    // Escala final em relação ao arquivo decodificado, que pode ser menor que a original
+    private double sourceScale(double scale, Dimension baseSize, int sourceWidth, int sourceHeight) {
+        return scale * Math.max((double) baseSize.width / sourceWidth, (double) baseSize.height / sourceHeight);
+    }
+
+    private int computeSubsampling(double scale) {
+        // Maior potência de dois cuja redução ainda fica igual ou acima da escala pedida
+        int subsampling = 1;
+        while (subsampling * 2 * scale <= 1.0) {
+            subsampling *= 2;
+        }
+        return subsampling;
+    }
+
+    private void writeImage(BufferedImage image, Path targetPath) throws IOException {
+        String extension = getFileExtension(targetPath.getFileName().toString());
+        boolean success = ImageIO.write(image, extension, targetPath.toFile());
+
+        if (!success) {
+            throw new InvalidImageException("Formato de imagem não suportado para escrita: " + extension);
         }
     }
 
@@ -77,4 +335,4 @@ public class ImageProcessor {
         }
         return filename.substring(lastIndex + 1);
     }
-}
\ No newline at end of file
+}
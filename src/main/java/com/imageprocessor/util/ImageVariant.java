@@ -0,0 +1,20 @@
+package com.imageprocessor.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+@Getter
+@AllArgsConstructor
+public class ImageVariant {
+    private final int percentage;
+    private final ResizeMethod method;
+    private final boolean grayscale;
+    private final Path targetPath;
+
+    ImagePipeline toPipeline() {
+        ImagePipeline pipeline = ImagePipeline.create().resize(percentage, method);
+        return grayscale ? pipeline.grayscale() : pipeline;
+    }
+}
@@ -0,0 +1,76 @@
+package com.imageprocessor.util;
+
+import com.imageprocessor.exception.PixelBudgetExhaustedException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+@Component
+@Slf4j
+public class PixelBudget {
+
+    // Uma permissão do semáforo equivale a 1 KiB de raster decodificado
+    private static final int PERMIT_BYTES = 1024;
+
+    @Value("${app.processing.pixel-budget.bytes:0}")
+    private long budgetBytes;
+
+    @Value("${app.processing.pixel-budget.wait-ms:30000}")
+    private long waitMillis;
+
+    private Semaphore permits;
+    private int totalPermits;
+
+    @PostConstruct
+    public void init() {
+        // 0 = metade do heap máximo da JVM
+        long bytes = budgetBytes > 0 ? budgetBytes : Runtime.getRuntime().maxMemory() / 2;
+        totalPermits = (int) Math.min(Integer.MAX_VALUE, Math.max(1, bytes / PERMIT_BYTES));
+        permits = new Semaphore(totalPermits, true);
+        log.info("Orçamento de memória para pixels: {} MiB", (long) totalPermits * PERMIT_BYTES / (1024 * 1024));
+    }
+
+    public Reservation reserve(long bytes) {
+        // Uma imagem maior que o orçamento inteiro ainda pode rodar, mas sozinha
+        int requested = (int) Math.min(totalPermits, Math.max(1, (bytes + PERMIT_BYTES - 1) / PERMIT_BYTES));
+        try {
+            if (!permits.tryAcquire(requested, waitMillis, TimeUnit.MILLISECONDS)) {
+                throw new PixelBudgetExhaustedException(bytes, waitMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PixelBudgetExhaustedException(bytes, waitMillis);
+        }
+        log.debug("Reservados {} KiB do orçamento de pixels ({} KiB livres)", requested, permits.availablePermits());
+        return new Reservation(requested);
+    }
+
+    public long getAvailableBytes() {
+        return (long) permits.availablePermits() * PERMIT_BYTES;
+    }
+
+    public long getTotalBytes() {
+        return (long) totalPermits * PERMIT_BYTES;
+    }
+
+    public class Reservation implements AutoCloseable {
+
+        private int held;
+
+        private Reservation(int held) {
+            this.held = held;
+        }
+
+        @Override
+        public void close() {
+            if (held > 0) {
+                permits.release(held);
+                held = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.imageprocessor.util;
+
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Random;
+
+@Component
+@Slf4j
+public class PixelKernelSelector {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_KERNELS = "com.imageprocessor.util.VectorPixelKernels";
+
+    private static final int CHECK_PIXELS = 64 * 1024 + 7;
+    private static final int WARMUP_ROUNDS = 200;
+    private static final int TIMED_ROUNDS = 200;
+
+    @Value("${app.processing.simd.enabled:false}")
+    private boolean simdEnabled;
+
+    @Getter
+    private PixelKernels kernels = new ScalarPixelKernels();
+
+    @PostConstruct
+    public void init() {
+        if (!simdEnabled) {
+            return;
+        }
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            log.warn("SIMD habilitado, mas o módulo {} não foi carregado (use --add-modules {}); usando kernels escalares",
+                    VECTOR_MODULE, VECTOR_MODULE);
+            return;
+        }
+
+        PixelKernels vector;
+        try {
+            vector = (PixelKernels) Class.forName(VECTOR_KERNELS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log.warn("Não foi possível carregar os kernels SIMD; usando kernels escalares", e);
+            return;
+        }
+
+        kernels = selfCheck(new ScalarPixelKernels(), vector);
+    }
+
+    // Compara resultado e tempo de cada kernel na CPU atual e escolhe a implementação mais rápida
+    private PixelKernels selfCheck(PixelKernels scalar, PixelKernels vector) {
+        Random random = new Random(42);
+        int[] packed = random.ints(CHECK_PIXELS).toArray();
+        byte[] interleaved = new byte[CHECK_PIXELS + 1];
+        random.nextBytes(interleaved);
+        float[] floats = new float[CHECK_PIXELS];
+        for (int i = 0; i < floats.length; i++) {
+            floats[i] = random.nextFloat() * 300f - 20f;
+        }
+
+        PixelKernels luma = choose("lumaFromPackedInts", scalar, vector, kernel -> {
+            byte[] target = new byte[CHECK_PIXELS];
+            kernel.lumaFromPackedInts(packed, 0, 16, 8, 0, target, 0, CHECK_PIXELS);
+            return target;
+        });
+        PixelKernels unpack = choose("unpackBytes", scalar, vector, kernel -> {
+            float[] target = new float[CHECK_PIXELS];
+            kernel.unpackBytes(interleaved, 1, target, CHECK_PIXELS);
+            return target;
+        });
+        PixelKernels pack = choose("packBytes", scalar, vector, kernel -> {
+            byte[] target = new byte[CHECK_PIXELS];
+            kernel.packBytes(floats, target, 0, CHECK_PIXELS);
+            return target;
+        });
+        PixelKernels accumulate = choose("accumulate", scalar, vector, kernel -> {
+            float[] accumulator = Arrays.copyOf(floats, floats.length);
+            kernel.accumulate(accumulator, floats, 0.37f, CHECK_PIXELS);
+            return accumulator;
+        });
+
+        // Luma de bytes intercalados depende de gather, que não tem ganho no módulo incubado do Java 17
+        return new SelectedPixelKernels(luma, scalar, unpack, pack, accumulate);
+    }
+
+    private PixelKernels choose(String name, PixelKernels scalar, PixelKernels vector, KernelCheck check) {
+        Object expected = check.run(scalar);
+        Object actual;
+        try {
+            actual = check.run(vector);
+        } catch (RuntimeException | LinkageError e) {
+            log.warn("Kernel SIMD {} falhou na verificação; usando escalar", name, e);
+            return scalar;
+        }
+        if (!Arrays.deepEquals(new Object[]{expected}, new Object[]{actual})) {
+            log.warn("Kernel SIMD {} produziu resultado divergente; usando escalar", name);
+            return scalar;
+        }
+
+        long scalarNanos = time(scalar, check);
+        long vectorNanos = time(vector, check);
+        PixelKernels selected = vectorNanos < scalarNanos ? vector : scalar;
+        log.info("Kernel {}: escalar {} µs, SIMD {} µs -> {}", name, scalarNanos / 1000, vectorNanos / 1000,
+                selected == vector ? "SIMD" : "escalar");
+        return selected;
+    }
+
+    private long time(PixelKernels kernel, KernelCheck check) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            check.run(kernel);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < TIMED_ROUNDS; i++) {
+            check.run(kernel);
+        }
+        return (System.nanoTime() - start) / TIMED_ROUNDS;
+    }
+
+    @FunctionalInterface
+    private interface KernelCheck {
+        Object run(PixelKernels kernel);
+    }
+
+    // Cada kernel pode vir de uma implementação diferente, conforme a verificação na inicialização
+    private record SelectedPixelKernels(PixelKernels luma, PixelKernels lumaBytes, PixelKernels unpack,
+                                        PixelKernels pack, PixelKernels accumulate) implements PixelKernels {
+
+        @Override
+        public void lumaFromPackedInts(int[] source, int sourceOffset, int redShift, int greenShift, int blueShift,
+                                       byte[] target, int targetOffset, int length) {
+            luma.lumaFromPackedInts(source, sourceOffset, redShift, greenShift, blueShift, target, targetOffset, length);
+        }
+
+        @Override
+        public void lumaFromInterleavedBytes(byte[] source, int sourceOffset, int pixelStride,
+                                             int redOffset, int greenOffset, int blueOffset,
+                                             byte[] target, int targetOffset, int length) {
+            lumaBytes.lumaFromInterleavedBytes(source, sourceOffset, pixelStride, redOffset, greenOffset, blueOffset,
+                    target, targetOffset, length);
+        }
+
+        @Override
+        public void unpackBytes(byte[] source, int sourceOffset, float[] target, int length) {
+            unpack.unpackBytes(source, sourceOffset, target, length);
+        }
+
+        @Override
+        public void packBytes(float[] source, byte[] target, int targetOffset, int length) {
+            pack.packBytes(source, target, targetOffset, length);
+        }
+
+        @Override
+        public void accumulate(float[] accumulator, float[] row, float weight, int length) {
+            accumulate.accumulate(accumulator, row, weight, length);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.imageprocessor.util;
+
+public interface PixelKernels {
+
+    void lumaFromPackedInts(int[] source, int sourceOffset, int redShift, int greenShift, int blueShift,
+                            byte[] target, int targetOffset, int length);
+
+    void lumaFromInterleavedBytes(byte[] source, int sourceOffset, int pixelStride,
+                                  int redOffset, int greenOffset, int blueOffset,
+                                  byte[] target, int targetOffset, int length);
+
+    void unpackBytes(byte[] source, int sourceOffset, float[] target, int length);
+
+    void packBytes(float[] source, byte[] target, int targetOffset, int length);
+
+    void accumulate(float[] accumulator, float[] row, float weight, int length);
+}
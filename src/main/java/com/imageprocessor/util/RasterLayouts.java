@@ -0,0 +1,42 @@
+package com.imageprocessor.util;
+
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.util.Arrays;
+
+// Acesso direto ao buffer de rasters de bytes intercalados (uma amostra por byte, todas as bandas no mesmo banco)
+final class RasterLayouts {
+
+    private RasterLayouts() {
+    }
+
+    static boolean isByteInterleaved(SampleModel model) {
+        return model instanceof ComponentSampleModel componentModel
+                && model.getDataType() == DataBuffer.TYPE_BYTE
+                && componentModel.getNumBands() == componentModel.getPixelStride()
+                && Arrays.stream(componentModel.getBankIndices()).allMatch(bank -> bank == 0);
+    }
+
+    static boolean sameByteLayout(SampleModel first, SampleModel second) {
+        return isByteInterleaved(first) && isByteInterleaved(second)
+                && Arrays.equals(((ComponentSampleModel) first).getBandOffsets(),
+                ((ComponentSampleModel) second).getBandOffsets());
+    }
+
+    // Posição de uma banda dentro do pixel, na ordem de armazenamento
+    static int storageIndex(SampleModel model, int band) {
+        int[] bandOffsets = ((ComponentSampleModel) model).getBandOffsets();
+        return bandOffsets[band] - Arrays.stream(bandOffsets).min().orElse(0);
+    }
+
+    static int rowOffset(Raster raster, int row) {
+        ComponentSampleModel model = (ComponentSampleModel) raster.getSampleModel();
+        int sampleY = raster.getMinY() + row - raster.getSampleModelTranslateY();
+        int sampleX = raster.getMinX() - raster.getSampleModelTranslateX();
+        int minBandOffset = Arrays.stream(model.getBandOffsets()).min().orElse(0);
+        return raster.getDataBuffer().getOffset() + sampleY * model.getScanlineStride()
+                + sampleX * model.getPixelStride() + minBandOffset;
+    }
+}
@@ -0,0 +1,60 @@
+package com.imageprocessor.util;
+
+// Filtros separáveis do Resampler: peso em função da distância e raio de suporte
+public enum ResampleFilter {
+
+    BILINEAR(1) {
+        @Override
+        double weight(double x) {
+            x = Math.abs(x);
+            return x < 1 ? 1 - x : 0;
+        }
+    },
+    // Mitchell-Netravali com B = C = 1/3
+    MITCHELL(2) {
+        @Override
+        double weight(double x) {
+            final double b = 1.0 / 3.0;
+            final double c = 1.0 / 3.0;
+            x = Math.abs(x);
+            if (x < 1) {
+                return ((12 - 9 * b - 6 * c) * x * x * x + (-18 + 12 * b + 6 * c) * x * x + (6 - 2 * b)) / 6;
+            }
+            if (x < 2) {
+                return ((-b - 6 * c) * x * x * x + (6 * b + 30 * c) * x * x + (-12 * b - 48 * c) * x + (8 * b + 24 * c)) / 6;
+            }
+            return 0;
+        }
+    },
+    LANCZOS3(3) {
+        @Override
+        double weight(double x) {
+            x = Math.abs(x);
+            if (x >= 3) {
+                return 0;
+            }
+            return sinc(x) * sinc(x / 3);
+        }
+    };
+
+    private final double support;
+
+    ResampleFilter(double support) {
+        this.support = support;
+    }
+
+    // Raio do filtro em pixels da imagem de destino
+    public double getSupport() {
+        return support;
+    }
+
+    abstract double weight(double x);
+
+    private static double sinc(double x) {
+        if (x == 0) {
+            return 1;
+        }
+        x *= Math.PI;
+        return Math.sin(x) / x;
+    }
+}
@@ -0,0 +1,267 @@
+package com.imageprocessor.util;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class Resampler {
+
+    // Limite das linhas intermediárias (passo horizontal) mantidas em memória por vez
+    private static final long BAND_BYTES = 32L * 1024 * 1024;
+
+    private final TileExecutor tileExecutor;
+    private final PixelKernelSelector pixelKernelSelector;
+
+    @Value("${app.processing.resize.weight-cache-size:64}")
+    private int weightCacheSize;
+
+    // Pesos por (tamanho de origem, tamanho de destino, filtro); reaproveitados entre tarefas com as mesmas dimensões
+    private final Map<WeightsKey, Weights> weightCache = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<WeightsKey, Weights> eldest) {
+                    return size() > weightCacheSize;
+                }
+            });
+
+    public BufferedImage resize(BufferedImage image, int targetWidth, int targetHeight, ResampleFilter filter) {
+        ColorModel colorModel = image.getColorModel();
+        if (colorModel instanceof IndexColorModel || colorModel.isAlphaPremultiplied()
+                || colorModel.getTransferType() == DataBuffer.TYPE_FLOAT
+                || colorModel.getTransferType() == DataBuffer.TYPE_DOUBLE) {
+            // Amostras de paleta não podem ser interpoladas; trabalhar em RGB de 8 bits
+            image = toDirectColor(image);
+            colorModel = image.getColorModel();
+        }
+
+        int sourceWidth = image.getWidth();
+        int sourceHeight = image.getHeight();
+        Weights horizontal = weightsFor(sourceWidth, targetWidth, filter);
+        Weights vertical = weightsFor(sourceHeight, targetHeight, filter);
+
+        Raster source = image.getRaster();
+        BufferedImage result = image.getType() != BufferedImage.TYPE_CUSTOM
+                ? new BufferedImage(targetWidth, targetHeight, image.getType())
+                : new BufferedImage(colorModel, colorModel.createCompatibleWritableRaster(targetWidth, targetHeight), false, null);
+        WritableRaster target = result.getRaster();
+
+        int bands = source.getNumBands();
+        float[] maxValues = new float[bands];
+        for (int b = 0; b < bands; b++) {
+            maxValues[b] = (1 << colorModel.getComponentSize(b)) - 1;
+        }
+        // Bytes intercalados são lidos e escritos direto no buffer, com as bandas na ordem de armazenamento
+        boolean byteLayout = RasterLayouts.sameByteLayout(source.getSampleModel(), target.getSampleModel());
+        // Com alfa, as cores são pré-multiplicadas durante a filtragem para não vazar cor de pixels transparentes
+        int alphaBand = -1;
+        if (colorModel.hasAlpha()) {
+            alphaBand = byteLayout ? RasterLayouts.storageIndex(source.getSampleModel(), bands - 1) : bands - 1;
+        }
+        float maxAlpha = alphaBand >= 0 ? maxValues[bands - 1] : 0f;
+        int alpha = alphaBand;
+
+        long rowBytes = (long) targetWidth * bands * Float.BYTES;
+        int maxRows = (int) Math.max(1, BAND_BYTES / rowBytes);
+
+        int y = 0;
+        while (y < targetHeight) {
+            // Faixa de linhas de saída cujas linhas de origem cabem no limite de memória
+            int first = sourceStart(vertical, y);
+            int end = y + 1;
+            while (end < targetHeight && sourceEnd(vertical, end) - first <= maxRows) {
+                end++;
+            }
+            int bandY = y;
+            int bandRows = end - y;
+            int sourceRows = sourceEnd(vertical, end - 1) - first;
+            float[][] rows = new float[sourceRows][];
+
+            // Passo horizontal: cada linha de origem é independente
+            tileExecutor.execute(sourceWidth, sourceRows, (tileX, tileY, tileWidth, tileHeight) -> {
+                PixelKernels kernels = pixelKernelSelector.getKernels();
+                float[] line = new float[sourceWidth * bands];
+                for (int r = tileY; r < tileY + tileHeight; r++) {
+                    if (byteLayout) {
+                        kernels.unpackBytes(((DataBufferByte) source.getDataBuffer()).getData(),
+                                RasterLayouts.rowOffset(source, first + r), line, line.length);
+                    } else {
+                        source.getPixels(0, first + r, sourceWidth, 1, line);
+                    }
+                    if (alpha >= 0) {
+                        premultiply(line, bands, alpha, maxAlpha);
+                    }
+                    rows[r] = horizontal == null ? line.clone() : resampleRow(line, horizontal, bands);
+                }
+            });
+
+            // Passo vertical: cada linha de saída é independente
+            tileExecutor.execute(targetWidth, bandRows, (tileX, tileY, tileWidth, tileHeight) -> {
+                PixelKernels kernels = pixelKernelSelector.getKernels();
+                float[] accumulator = new float[targetWidth * bands];
+                int[] pixels = new int[targetWidth * bands];
+                for (int r = tileY; r < tileY + tileHeight; r++) {
+                    int outputRow = bandY + r;
+                    float[] values;
+                    if (vertical == null) {
+                        values = rows[outputRow - first];
+                    } else {
+                        Arrays.fill(accumulator, 0f);
+                        int start = vertical.start[outputRow];
+                        for (int k = 0; k < vertical.count[outputRow]; k++) {
+                            kernels.accumulate(accumulator, rows[start + k - first],
+                                    vertical.weights[outputRow * vertical.stride + k], accumulator.length);
+                        }
+                        values = accumulator;
+                    }
+                    if (alpha >= 0) {
+                        unpremultiply(values, bands, alpha, maxAlpha);
+                    }
+                    if (byteLayout) {
+                        kernels.packBytes(values, ((DataBufferByte) target.getDataBuffer()).getData(),
+                                RasterLayouts.rowOffset(target, outputRow), values.length);
+                    } else {
+                        // Lanczos e Mitchell têm lóbulos negativos e podem ultrapassar o intervalo válido
+                        for (int i = 0; i < values.length; i++) {
+                            pixels[i] = Math.round(Math.min(maxValues[i % bands], Math.max(0f, values[i])));
+                        }
+                        target.setPixels(0, outputRow, targetWidth, 1, pixels);
+                    }
+                }
+            });
+
+            y = end;
+        }
+
+        return result;
+    }
+
+    private Weights weightsFor(int sourceSize, int targetSize, ResampleFilter filter) {
+        if (sourceSize == targetSize) {
+            return null;
+        }
+        return weightCache.computeIfAbsent(new WeightsKey(sourceSize, targetSize, filter),
+                key -> {
+                    log.debug("Calculando pesos {} para {} -> {}", filter, sourceSize, targetSize);
+                    return new Weights(sourceSize, targetSize, filter);
+                });
+    }
+
+    // Intervalo de linhas de origem usado por uma linha de destino (identidade quando não há redimensionamento)
+    private static int sourceStart(Weights weights, int row) {
+        return weights == null ? row : weights.start[row];
+    }
+
+    private static int sourceEnd(Weights weights, int row) {
+        return weights == null ? row + 1 : weights.start[row] + weights.count[row];
+    }
+
+    private float[] resampleRow(float[] line, Weights weights, int bands) {
+        int targetSize = weights.start.length;
+        float[] result = new float[targetSize * bands];
+        for (int x = 0; x < targetSize; x++) {
+            int start = weights.start[x] * bands;
+            int offset = x * weights.stride;
+            for (int b = 0; b < bands; b++) {
+                float sum = 0f;
+                for (int k = 0, source = start + b; k < weights.count[x]; k++, source += bands) {
+                    sum += line[source] * weights.weights[offset + k];
+                }
+                result[x * bands + b] = sum;
+            }
+        }
+        return result;
+    }
+
+    private static void premultiply(float[] line, int bands, int alphaBand, float maxAlpha) {
+        for (int i = 0; i < line.length; i += bands) {
+            float alpha = line[i + alphaBand] / maxAlpha;
+            for (int b = 0; b < bands; b++) {
+                if (b != alphaBand) {
+                    line[i + b] *= alpha;
+                }
+            }
+        }
+    }
+
+    private static void unpremultiply(float[] values, int bands, int alphaBand, float maxAlpha) {
+        for (int i = 0; i < values.length; i += bands) {
+            float alpha = Math.min(maxAlpha, Math.max(0f, values[i + alphaBand]));
+            float scale = alpha > 0f ? maxAlpha / alpha : 0f;
+            for (int b = 0; b < bands; b++) {
+                if (b != alphaBand) {
+                    values[i + b] *= scale;
+                }
+            }
+        }
+    }
+
+    private static BufferedImage toDirectColor(BufferedImage image) {
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), type);
+        Graphics2D graphics = converted.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.dispose();
+        return converted;
+    }
+
+    private record WeightsKey(int sourceSize, int targetSize, ResampleFilter filter) {
+    }
+
+    // Pesos normalizados do filtro para cada posição de destino; em reduções o filtro é alargado pela escala
+    static class Weights {
+
+        final int[] start;
+        final int[] count;
+        final float[] weights;
+        final int stride;
+
+        Weights(int sourceSize, int targetSize, ResampleFilter filter) {
+            this(targetSize, (int) Math.ceil(filter.getSupport() * Math.max((double) sourceSize / targetSize, 1.0)) * 2 + 1);
+            double scale = (double) sourceSize / targetSize;
+            double filterScale = Math.max(scale, 1.0);
+            double support = filter.getSupport() * filterScale;
+
+            for (int i = 0; i < targetSize; i++) {
+                double center = (i + 0.5) * scale;
+                int first = Math.max(0, (int) Math.floor(center - support + 0.5));
+                int last = Math.min(sourceSize, (int) Math.floor(center + support + 0.5));
+                double total = 0;
+                double[] values = new double[last - first];
+                for (int k = 0; k < values.length; k++) {
+                    values[k] = filter.weight((first + k - center + 0.5) / filterScale);
+                    total += values[k];
+                }
+                start[i] = first;
+                count[i] = values.length;
+                for (int k = 0; k < values.length; k++) {
+                    weights[i * stride + k] = (float) (total != 0 ? values[k] / total : values[k]);
+                }
+            }
+        }
+
+        // Tabelas vazias para outros esquemas de pesos, como a média por área do processamento em faixas
+        Weights(int targetSize, int stride) {
+            this.stride = stride;
+            this.start = new int[targetSize];
+            this.count = new int[targetSize];
+            this.weights = new float[targetSize * stride];
+        }
+    }
+}
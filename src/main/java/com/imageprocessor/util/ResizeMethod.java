@@ -0,0 +1,22 @@
+package com.imageprocessor.util;
+
+// Método de redimensionamento escolhido por tarefa: o imgscalr ou um dos filtros separáveis do Resampler
+public enum ResizeMethod {
+
+    // Scalr.Method.QUALITY (reduções bilineares sucessivas)
+    SCALR(null),
+    BILINEAR(ResampleFilter.BILINEAR),
+    MITCHELL(ResampleFilter.MITCHELL),
+    LANCZOS3(ResampleFilter.LANCZOS3);
+
+    private final ResampleFilter filter;
+
+    ResizeMethod(ResampleFilter filter) {
+        this.filter = filter;
+    }
+
+    // Filtro do Resampler; nulo para o SCALR, que não passa por ele
+    public ResampleFilter getFilter() {
+        return filter;
+    }
+}
@@ -0,0 +1,46 @@
+package com.imageprocessor.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+// Chave de memoização: SHA-256 do conteúdo da imagem mais a configuração normalizada, de modo que formas
+// equivalentes do mesmo pedido (método omitido ou explícito, 100% com qualquer método) coincidam
+public final class ResultKeys {
+
+    private static final String VERSION = "v1";
+
+    private ResultKeys() {
+    }
+
+    public static String compute(String contentHash, boolean resizeEnabled, Integer resizePercentage,
+                                 ResizeMethod resizeMethod, ResizeMethod defaultResizeMethod,
+                                 boolean grayscaleEnabled, String extension) {
+        return sha256(canonical(contentHash, resizeEnabled, resizePercentage, resizeMethod, defaultResizeMethod,
+                grayscaleEnabled, extension));
+    }
+
+    static String canonical(String contentHash, boolean resizeEnabled, Integer resizePercentage,
+                            ResizeMethod resizeMethod, ResizeMethod defaultResizeMethod,
+                            boolean grayscaleEnabled, String extension) {
+        // Sem porcentagem não há redimensionamento
+        String resize = "none";
+        if (resizeEnabled && resizePercentage != null) {
+            // Com 100% o método não altera o resultado
+            resize = resizePercentage == 100 ? "100"
+                    : resizePercentage + ":" + (resizeMethod != null ? resizeMethod : defaultResizeMethod);
+        }
+        return VERSION + "|" + contentHash + "|resize=" + resize + "|gray=" + grayscaleEnabled
+                + "|ext=" + extension.toLowerCase();
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.imageprocessor.util;
+
+public class ScalarPixelKernels implements PixelKernels {
+
+    // Coeficientes de luma BT.601 em ponto fixo (somam 256)
+    static final int LUMA_RED = 77;
+    static final int LUMA_GREEN = 150;
+    static final int LUMA_BLUE = 29;
+
+    @Override
+    public void lumaFromPackedInts(int[] source, int sourceOffset, int redShift, int greenShift, int blueShift,
+                                   byte[] target, int targetOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            int pixel = source[sourceOffset + i];
+            int luma = LUMA_RED * ((pixel >>> redShift) & 0xFF)
+                    + LUMA_GREEN * ((pixel >>> greenShift) & 0xFF)
+                    + LUMA_BLUE * ((pixel >>> blueShift) & 0xFF);
+            target[targetOffset + i] = (byte) ((luma + 128) >> 8);
+        }
+    }
+
+    @Override
+    public void lumaFromInterleavedBytes(byte[] source, int sourceOffset, int pixelStride,
+                                         int redOffset, int greenOffset, int blueOffset,
+                                         byte[] target, int targetOffset, int length) {
+        int index = sourceOffset;
+        for (int i = 0; i < length; i++, index += pixelStride) {
+            int luma = LUMA_RED * (source[index + redOffset] & 0xFF)
+                    + LUMA_GREEN * (source[index + greenOffset] & 0xFF)
+                    + LUMA_BLUE * (source[index + blueOffset] & 0xFF);
+            target[targetOffset + i] = (byte) ((luma + 128) >> 8);
+        }
+    }
+
+    @Override
+    public void unpackBytes(byte[] source, int sourceOffset, float[] target, int length) {
+        for (int i = 0; i < length; i++) {
+            target[i] = source[sourceOffset + i] & 0xFF;
+        }
+    }
+
+    @Override
+    public void packBytes(float[] source, byte[] target, int targetOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            target[targetOffset + i] = (byte) Math.min(255, Math.max(0, Math.round(source[i])));
+        }
+    }
+
+    @Override
+    public void accumulate(float[] accumulator, float[] row, float weight, int length) {
+        for (int i = 0; i < length; i++) {
+            accumulator[i] += row[i] * weight;
+        }
+    }
+}
@@ -0,0 +1,494 @@
+package com.imageprocessor.util;
+
+import com.imageprocessor.exception.InvalidImageException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Vector;
+import java.util.function.UnaryOperator;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StreamingImageProcessor {
+
+    private final TileExecutor tileExecutor;
+    private final PixelKernelSelector pixelKernelSelector;
+
+    @Value("${app.processing.streaming.strip-bytes:33554432}")
+    private long stripBytes;
+
+    // Memória aproximada em uso durante o processamento em faixas: faixa de entrada, linhas intermediárias e faixa de saída
+    public long getWorkingBytes() {
+        return 4 * stripBytes;
+    }
+
+    // Com filtro nulo (SCALR) a redução é feita por média de área: o imgscalr precisa do raster inteiro
+    public void process(ImageReader reader, int subsampling, ImagePipeline pipeline, ResampleFilter filter,
+                        Path targetPath, String format, UnaryOperator<BufferedImage> grayscaleOperator) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new InvalidImageException("Formato de imagem não suportado para escrita: " + format);
+        }
+        ImageWriter writer = writers.next();
+
+        StripImage image = new StripImage(reader, subsampling, pipeline, filter, grayscaleOperator,
+                tileExecutor, pixelKernelSelector.getKernels(), stripBytes);
+        log.info("Processando imagem em faixas: {}x{} -> {}x{}, {} faixas de saída, filtro {}",
+                image.sourceWidth, image.sourceHeight, image.width, image.height, image.getNumYTiles(),
+                filter != null ? filter : "média de área");
+
+        Files.deleteIfExists(targetPath);
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(targetPath.toFile())) {
+            writer.setOutput(output);
+            // O writer consome a imagem por regiões; cada faixa é gerada sob demanda a partir do leitor
+            writer.write(null, new IIOImage(image, null, null), writer.getDefaultWriteParam());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    // Reduz em faixas e devolve o resultado inteiro em memória: para quando a saída cabe em memória mas a origem não
+    public BufferedImage decode(ImageReader reader, int subsampling, ImagePipeline pipeline, ResampleFilter filter,
+                                UnaryOperator<BufferedImage> grayscaleOperator) throws IOException {
+        StripImage image = new StripImage(reader, subsampling, pipeline, filter, grayscaleOperator,
+                tileExecutor, pixelKernelSelector.getKernels(), stripBytes);
+        log.info("Decodificando imagem em faixas: {}x{} -> {}x{}, filtro {}",
+                image.sourceWidth, image.sourceHeight, image.width, image.height,
+                filter != null ? filter : "média de área");
+        try {
+            WritableRaster raster = (WritableRaster) image.getData();
+            return new BufferedImage(image.getColorModel(), raster, image.getColorModel().isAlphaPremultiplied(), null);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // Imagem gerada faixa a faixa: apenas a faixa de entrada corrente e a faixa de saída ficam em memória
+    static class StripImage implements RenderedImage {
+
+        private final ImageReader reader;
+        private final int subsampling;
+        private final UnaryOperator<BufferedImage> grayscaleOperator;
+        private final TileExecutor tileExecutor;
+        private final PixelKernels kernels;
+        private final boolean grayscale;
+        private final int fullWidth;
+        private final int fullHeight;
+        private final int sourceWidth;
+        private final int sourceHeight;
+        private final int width;
+        private final int height;
+        private final int inputStripRows;
+        private final int outputStripRows;
+        private final ColorModel colorModel;
+        private final SampleModel sampleModel;
+        private final boolean byteLayout;
+        private final Resampler.Weights horizontalWeights;
+        private final Resampler.Weights verticalWeights;
+
+        // Estado da geração sequencial
+        private int nextInputRow;
+        private BufferedImage pendingStrip;
+        private final List<float[]> rows = new ArrayList<>();
+        private int firstRow;
+        private WritableRaster window;
+        private int windowY;
+
+        StripImage(ImageReader reader, int subsampling, ImagePipeline pipeline, ResampleFilter filter,
+                   UnaryOperator<BufferedImage> grayscaleOperator, TileExecutor tileExecutor,
+                   PixelKernels kernels, long stripBytes) throws IOException {
+            this.reader = reader;
+            this.subsampling = subsampling;
+            this.grayscaleOperator = grayscaleOperator;
+            this.tileExecutor = tileExecutor;
+            this.kernels = kernels;
+            this.fullWidth = reader.getWidth(0);
+            this.fullHeight = reader.getHeight(0);
+            this.sourceWidth = ceilDiv(fullWidth, subsampling);
+            this.sourceHeight = ceilDiv(fullHeight, subsampling);
+
+            Dimension baseSize = pipeline.getBaseSize(fullWidth, fullHeight);
+            int targetWidth = baseSize.width;
+            int targetHeight = baseSize.height;
+            boolean hasGrayscale = false;
+            for (ImagePipeline.Operation operation : pipeline.getOperations()) {
+                switch (operation.getType()) {
+                    case RESIZE -> {
+                        targetWidth = Math.max(1, targetWidth * operation.getPercentage() / 100);
+                        targetHeight = Math.max(1, targetHeight * operation.getPercentage() / 100);
+                    }
+                    case GRAYSCALE -> hasGrayscale = true;
+                }
+            }
+            this.grayscale = hasGrayscale;
+            this.width = Math.min(targetWidth, sourceWidth);
+            this.height = Math.min(targetHeight, sourceHeight);
+
+            int bytesPerPixel = bytesPerPixel(reader);
+            this.inputStripRows = (int) Math.max(1, Math.min(sourceHeight, stripBytes / ((long) sourceWidth * bytesPerPixel)));
+
+            // A primeira faixa define o modelo de cor da saída
+            this.pendingStrip = readStrip();
+            this.colorModel = pendingStrip.getColorModel();
+            boolean resample = width != sourceWidth || height != sourceHeight;
+            // Mesmas tabelas do Resampler, aplicadas linha a linha (horizontal) e entre linhas da janela (vertical)
+            this.horizontalWeights = resample ? weightsFor(sourceWidth, width, filter) : null;
+            this.verticalWeights = resample ? weightsFor(sourceHeight, height, filter) : null;
+
+            // Ao redimensionar, as linhas intermediárias em float de toda a faixa de saída ficam em memória,
+            // com a sobreposição do suporte do filtro entre linhas de saída vizinhas
+            long outputRowBytes = (long) width * Math.max(1, colorModel.getPixelSize() / 8);
+            if (resample) {
+                outputRowBytes = (long) width * colorModel.getNumComponents() * Float.BYTES
+                        * Math.max(ceilDiv(sourceHeight, height) + 1, verticalWeights.stride);
+            }
+            this.outputStripRows = (int) Math.max(1, Math.min(height, stripBytes / outputRowBytes));
+            this.sampleModel = colorModel.createCompatibleSampleModel(width, outputStripRows);
+            this.byteLayout = RasterLayouts.sameByteLayout(pendingStrip.getSampleModel(), sampleModel);
+        }
+
+        private BufferedImage readStrip() throws IOException {
+            int rowCount = Math.min(inputStripRows, sourceHeight - nextInputRow);
+            int regionY = nextInputRow * subsampling;
+            int regionHeight = Math.min(rowCount * subsampling, fullHeight - regionY);
+
+            ImageReadParam param = reader.getDefaultReadParam();
+            param.setSourceRegion(new Rectangle(0, regionY, fullWidth, regionHeight));
+            param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            BufferedImage strip = reader.read(0, param);
+            nextInputRow += strip.getHeight();
+
+            if (grayscale) {
+                return grayscaleOperator.apply(strip);
+            }
+            if (strip.getColorModel() instanceof IndexColorModel) {
+                // Amostras de paleta não podem ser interpoladas; trabalhar em RGB
+                return toDirectColor(strip);
+            }
+            return strip;
+        }
+
+        private BufferedImage nextStrip() {
+            try {
+                BufferedImage strip = pendingStrip != null ? pendingStrip : readStrip();
+                pendingStrip = null;
+                return strip;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void restart() {
+            nextInputRow = 0;
+            pendingStrip = null;
+            rows.clear();
+            firstRow = 0;
+            window = null;
+            windowY = 0;
+        }
+
+        private void advance() {
+            int y = window == null ? 0 : windowY + window.getHeight();
+            int rowCount = Math.min(outputStripRows, height - y);
+
+            if (horizontalWeights == null) {
+                // Sem redimensionamento: a faixa de entrada já é a faixa de saída
+                BufferedImage strip = nextStrip();
+                window = strip.getRaster();
+                windowY = y;
+                return;
+            }
+
+            WritableRaster raster = colorModel.createCompatibleWritableRaster(width, rowCount);
+            int bands = raster.getNumBands();
+            int[] maxValues = new int[bands];
+            for (int b = 0; b < bands; b++) {
+                maxValues[b] = (1 << sampleModel.getSampleSize(b)) - 1;
+            }
+
+            // Carregar todas as linhas de entrada da faixa antes de calcular as linhas de saída em paralelo
+            int lastRow = y + rowCount - 1;
+            ensureRows(verticalWeights.start[lastRow] + verticalWeights.count[lastRow]);
+            dropRowsBefore(verticalWeights.start[y]);
+
+            tileExecutor.execute(width, rowCount, (tileX, tileY, tileWidth, tileHeight) -> {
+                float[] accumulator = new float[width * bands];
+                int[] pixels = new int[width * bands];
+
+                for (int r = tileY; r < tileY + tileHeight; r++) {
+                    int outputRow = y + r;
+                    int start = verticalWeights.start[outputRow];
+                    int count = verticalWeights.count[outputRow];
+
+                    Arrays.fill(accumulator, 0f);
+                    for (int k = 0; k < count; k++) {
+                        float weight = verticalWeights.weights[outputRow * verticalWeights.stride + k];
+                        kernels.accumulate(accumulator, rows.get(start + k - firstRow), weight, accumulator.length);
+                    }
+                    if (byteLayout) {
+                        kernels.packBytes(accumulator, ((DataBufferByte) raster.getDataBuffer()).getData(),
+                                RasterLayouts.rowOffset(raster, r), accumulator.length);
+                    } else {
+                        for (int i = 0; i < accumulator.length; i++) {
+                            pixels[i] = Math.min(maxValues[i % bands], Math.max(0, Math.round(accumulator[i])));
+                        }
+                        raster.setPixels(0, r, width, 1, pixels);
+                    }
+                }
+            });
+
+            window = raster;
+            windowY = y;
+        }
+
+        private void ensureRows(int endRow) {
+            while (firstRow + rows.size() < endRow) {
+                Raster strip = nextStrip().getRaster();
+                int bands = strip.getNumBands();
+                float[][] resampled = new float[strip.getHeight()][];
+
+                // Passo horizontal: cada linha da faixa é independente
+                tileExecutor.execute(sourceWidth, strip.getHeight(), (tileX, tileY, tileWidth, tileHeight) -> {
+                    float[] line = new float[sourceWidth * bands];
+                    for (int r = tileY; r < tileY + tileHeight; r++) {
+                        if (byteLayout) {
+                            // Amostras na ordem de armazenamento; a saída usa o mesmo layout
+                            kernels.unpackBytes(((DataBufferByte) strip.getDataBuffer()).getData(),
+                                    RasterLayouts.rowOffset(strip, r), line, line.length);
+                        } else {
+                            strip.getPixels(0, r, sourceWidth, 1, line);
+                        }
+                        resampled[r] = resampleRow(line, bands);
+                    }
+                });
+                rows.addAll(Arrays.asList(resampled));
+            }
+        }
+
+        private void dropRowsBefore(int row) {
+            int drop = row - firstRow;
+            if (drop > 0) {
+                rows.subList(0, drop).clear();
+                firstRow = row;
+            }
+        }
+
+        private float[] resampleRow(float[] line, int bands) {
+            float[] result = new float[width * bands];
+            for (int x = 0; x < width; x++) {
+                int start = horizontalWeights.start[x];
+                int count = horizontalWeights.count[x];
+                for (int k = 0; k < count; k++) {
+                    float weight = horizontalWeights.weights[x * horizontalWeights.stride + k];
+                    int source = (start + k) * bands;
+                    for (int b = 0; b < bands; b++) {
+                        result[x * bands + b] += line[source + b] * weight;
+                    }
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public Raster getData(Rectangle rect) {
+            Rectangle bounds = rect.intersection(new Rectangle(0, 0, width, height));
+            WritableRaster result = Raster.createWritableRaster(
+                    colorModel.createCompatibleSampleModel(bounds.width, bounds.height), bounds.getLocation());
+
+            int y = bounds.y;
+            while (y < bounds.y + bounds.height) {
+                if (window == null) {
+                    advance();
+                } else if (y < windowY) {
+                    log.debug("Região já descartada solicitada pelo writer; reiniciando a leitura em faixas");
+                    restart();
+                    advance();
+                }
+                while (y >= windowY + window.getHeight()) {
+                    advance();
+                }
+                result.setRect(0, windowY, window);
+                y = windowY + window.getHeight();
+            }
+            return result;
+        }
+
+        @Override
+        public Raster getData() {
+            return getData(new Rectangle(0, 0, width, height));
+        }
+
+        @Override
+        public WritableRaster copyData(WritableRaster raster) {
+            if (raster == null) {
+                return (WritableRaster) getData();
+            }
+            raster.setRect(getData(raster.getBounds()));
+            return raster;
+        }
+
+        @Override
+        public Raster getTile(int tileX, int tileY) {
+            return getData(new Rectangle(0, tileY * outputStripRows, width, outputStripRows));
+        }
+
+        @Override
+        public Vector<RenderedImage> getSources() {
+            return null;
+        }
+
+        @Override
+        public Object getProperty(String name) {
+            return Image.UndefinedProperty;
+        }
+
+        @Override
+        public String[] getPropertyNames() {
+            return null;
+        }
+
+        @Override
+        public ColorModel getColorModel() {
+            return colorModel;
+        }
+
+        @Override
+        public SampleModel getSampleModel() {
+            return sampleModel;
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int getMinX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinY() {
+            return 0;
+        }
+
+        @Override
+        public int getNumXTiles() {
+            return 1;
+        }
+
+        @Override
+        public int getNumYTiles() {
+            return ceilDiv(height, outputStripRows);
+        }
+
+        @Override
+        public int getMinTileX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinTileY() {
+            return 0;
+        }
+
+        @Override
+        public int getTileWidth() {
+            return width;
+        }
+
+        @Override
+        public int getTileHeight() {
+            return outputStripRows;
+        }
+
+        @Override
+        public int getTileGridXOffset() {
+            return 0;
+        }
+
+        @Override
+        public int getTileGridYOffset() {
+            return 0;
+        }
+
+        private static Resampler.Weights weightsFor(int sourceSize, int targetSize, ResampleFilter filter) {
+            return filter != null ? new Resampler.Weights(sourceSize, targetSize, filter) : new AreaWeights(sourceSize, targetSize);
+        }
+
+        private static BufferedImage toDirectColor(BufferedImage strip) {
+            int type = strip.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+            BufferedImage converted = new BufferedImage(strip.getWidth(), strip.getHeight(), type);
+            Graphics2D graphics = converted.createGraphics();
+            graphics.drawImage(strip, 0, 0, null);
+            graphics.dispose();
+            return converted;
+        }
+    }
+
+    // Pesos de média por área: cada pixel de saída cobre um intervalo contínuo da origem
+    static class AreaWeights extends Resampler.Weights {
+
+        AreaWeights(int sourceSize, int targetSize) {
+            super(targetSize, (int) Math.ceil((double) sourceSize / targetSize) + 1);
+            double ratio = (double) sourceSize / targetSize;
+
+            for (int i = 0; i < targetSize; i++) {
+                double low = i * ratio;
+                double high = Math.min(sourceSize, (i + 1) * ratio);
+                int first = (int) Math.floor(low);
+                int last = Math.min(sourceSize - 1, (int) Math.ceil(high) - 1);
+                start[i] = first;
+                count[i] = last - first + 1;
+                for (int k = 0; k < count[i]; k++) {
+                    int position = first + k;
+                    double coverage = Math.min(high, position + 1) - Math.max(low, position);
+                    weights[i * stride + k] = (float) (coverage / ratio);
+                }
+            }
+        }
+    }
+
+    static int bytesPerPixel(ImageReader reader) throws IOException {
+        SampleModel model = reader.getImageTypes(0).next().getSampleModel();
+        return Math.max(1, model.getNumBands() * DataBuffer.getDataTypeSize(model.getDataType()) / 8);
+    }
+
+    static int ceilDiv(int value, int divisor) {
+        return (value + divisor - 1) / divisor;
+    }
+}
@@ -0,0 +1,90 @@
+package com.imageprocessor.util;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+@Component
+@Slf4j
+public class TileExecutor {
+
+    @Value("${app.processing.parallelism:0}")
+    private int parallelism;
+
+    @Value("${app.processing.tile-pixels:262144}")
+    private int tilePixels;
+
+    private ForkJoinPool pool;
+
+    @PostConstruct
+    public void init() {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        pool = new ForkJoinPool(threads, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("ImageTile-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        log.info("Pool de processamento em blocos iniciado com {} threads", threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    public void execute(int width, int height, TileTask task) {
+        // Imagens pequenas não compensam o custo de dividir e sincronizar
+        if ((long) width * height <= tilePixels || height < 2) {
+            task.process(0, 0, width, height);
+            return;
+        }
+        int rowsPerTile = Math.max(1, tilePixels / Math.max(1, width));
+        pool.invoke(new TileAction(task, width, 0, height, rowsPerTile));
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @FunctionalInterface
+    public interface TileTask {
+        void process(int x, int y, int width, int height);
+    }
+
+    // Divide recursivamente em faixas horizontais até atingir o tamanho de bloco configurado
+    private static class TileAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final TileTask task;
+        private final int width;
+        private final int y;
+        private final int height;
+        private final int rowsPerTile;
+
+        TileAction(TileTask task, int width, int y, int height, int rowsPerTile) {
+            this.task = task;
+            this.width = width;
+            this.y = y;
+            this.height = height;
+            this.rowsPerTile = rowsPerTile;
+        }
+
+        @Override
+        protected void compute() {
+            if (height <= rowsPerTile) {
+                task.process(0, y, width, height);
+                return;
+            }
+            int half = height / 2;
+            invokeAll(new TileAction(task, width, y, half, rowsPerTile),
+                    new TileAction(task, width, y + half, height - half, rowsPerTile));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.imageprocessor.util;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+// Carregada apenas por reflexão quando o módulo jdk.incubator.vector está presente
+class VectorPixelKernels extends ScalarPixelKernels {
+
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+
+    // Espécies com o mesmo número de lanes, para converter entre bytes, inteiros e floats
+    private static final VectorSpecies<Integer> INTS_FOR_FLOATS =
+            VectorSpecies.of(int.class, FLOATS.vectorShape());
+    private static final VectorSpecies<Byte> BYTES_FOR_FLOATS = bytesFor(FLOATS.length());
+    private static final VectorSpecies<Byte> BYTES_FOR_INTS = bytesFor(INTS.length());
+
+    @Override
+    public void lumaFromPackedInts(int[] source, int sourceOffset, int redShift, int greenShift, int blueShift,
+                                   byte[] target, int targetOffset, int length) {
+        if (BYTES_FOR_INTS == null) {
+            super.lumaFromPackedInts(source, sourceOffset, redShift, greenShift, blueShift, target, targetOffset, length);
+            return;
+        }
+
+        int i = 0;
+        int bound = INTS.loopBound(length);
+        for (; i < bound; i += INTS.length()) {
+            IntVector pixels = IntVector.fromArray(INTS, source, sourceOffset + i);
+            IntVector red = pixels.lanewise(VectorOperators.LSHR, redShift).and(0xFF);
+            IntVector green = pixels.lanewise(VectorOperators.LSHR, greenShift).and(0xFF);
+            IntVector blue = pixels.lanewise(VectorOperators.LSHR, blueShift).and(0xFF);
+            IntVector luma = red.mul(LUMA_RED)
+                    .add(green.mul(LUMA_GREEN))
+                    .add(blue.mul(LUMA_BLUE))
+                    .add(128)
+                    .lanewise(VectorOperators.ASHR, 8);
+            luma.convertShape(VectorOperators.I2B, BYTES_FOR_INTS, 0)
+                    .reinterpretAsBytes()
+                    .intoArray(target, targetOffset + i);
+        }
+        super.lumaFromPackedInts(source, sourceOffset + i, redShift, greenShift, blueShift,
+                target, targetOffset + i, length - i);
+    }
+
+    @Override
+    public void unpackBytes(byte[] source, int sourceOffset, float[] target, int length) {
+        if (BYTES_FOR_FLOATS == null) {
+            super.unpackBytes(source, sourceOffset, target, length);
+            return;
+        }
+
+        int i = 0;
+        int bound = FLOATS.loopBound(length);
+        for (; i < bound; i += FLOATS.length()) {
+            ByteVector bytes = ByteVector.fromArray(BYTES_FOR_FLOATS, source, sourceOffset + i);
+            IntVector unsigned = ((IntVector) bytes.convertShape(VectorOperators.B2I, INTS_FOR_FLOATS, 0)).and(0xFF);
+            unsigned.convertShape(VectorOperators.I2F, FLOATS, 0)
+                    .reinterpretAsFloats()
+                    .intoArray(target, i);
+        }
+        for (; i < length; i++) {
+            target[i] = source[sourceOffset + i] & 0xFF;
+        }
+    }
+
+    @Override
+    public void packBytes(float[] source, byte[] target, int targetOffset, int length) {
+        if (BYTES_FOR_FLOATS == null) {
+            super.packBytes(source, target, targetOffset, length);
+            return;
+        }
+
+        int i = 0;
+        int bound = FLOATS.loopBound(length);
+        for (; i < bound; i += FLOATS.length()) {
+            // Soma 0.5 e trunca: equivale a Math.round para valores já limitados a [0, 255]
+            FloatVector values = FloatVector.fromArray(FLOATS, source, i).add(0.5f).max(0f).min(255f);
+            IntVector rounded = (IntVector) values.convertShape(VectorOperators.F2I, INTS_FOR_FLOATS, 0);
+            rounded.convertShape(VectorOperators.I2B, BYTES_FOR_FLOATS, 0)
+                    .reinterpretAsBytes()
+                    .intoArray(target, targetOffset + i);
+        }
+        for (; i < length; i++) {
+            target[targetOffset + i] = (byte) Math.min(255, Math.max(0, Math.round(source[i])));
+        }
+    }
+
+    @Override
+    public void accumulate(float[] accumulator, float[] row, float weight, int length) {
+        int i = 0;
+        int bound = FLOATS.loopBound(length);
+        for (; i < bound; i += FLOATS.length()) {
+            // mul seguido de add (sem FMA) para manter o resultado idêntico ao escalar
+            FloatVector.fromArray(FLOATS, accumulator, i)
+                    .add(FloatVector.fromArray(FLOATS, row, i).mul(weight))
+                    .intoArray(accumulator, i);
+        }
+        for (; i < length; i++) {
+            accumulator[i] += row[i] * weight;
+        }
+    }
+
+    private static VectorSpecies<Byte> bytesFor(int lanes) {
+        int bits = lanes * Byte.SIZE;
+        if (bits < 64) {
+            // Vetores de 128 bits não têm forma de 32 bits para os bytes; usar o caminho escalar
+            return null;
+        }
+        return VectorSpecies.of(byte.class, VectorShape.forBitSize(bits));
+    }
+}
@@ -6,6 +6,8 @@ CREATE TABLE IF NOT EXISTS plans (
     is_premium BOOLEAN NOT NULL,
     daily_quota INTEGER NOT NULL,
     monthly_price DOUBLE NOT NULL,
+    max_pixels BIGINT,
+    scheduling_weight INTEGER,
     created_at TIMESTAMP,
     updated_at TIMESTAMP
 );
@@ -17,6 +19,7 @@ CREATE TABLE IF NOT EXISTS users (
     password VARCHAR(255) NOT NULL,
     email_verified BOOLEAN,
     verification_token VARCHAR(255),
+    is_admin BOOLEAN DEFAULT FALSE,
     created_at TIMESTAMP,
     updated_at TIMESTAMP
 );
\ No newline at end of file
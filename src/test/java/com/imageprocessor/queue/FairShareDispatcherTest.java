@@ -0,0 +1,161 @@
+package com.imageprocessor.queue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.imageprocessor.model.OutboxMessage;
+import com.imageprocessor.repository.OutboxMessageRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class FairShareDispatcherTest {
+
+    @Mock
+    private ImageProcessingProducer imageProcessingProducer;
+    @Mock
+    private TaskCostEstimator taskCostEstimator;
+    @Mock
+    private OutboxMessageRepository outboxMessageRepository;
+    @Mock
+    private AmqpAdmin amqpAdmin;
+    @Mock
+    private DeadLetterQueue deadLetterQueue;
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private FairShareDispatcher dispatcher;
+
+    private final AtomicLong ids = new AtomicLong();
+    private final Map<Long, Long> usersById = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new FairShareDispatcher(imageProcessingProducer, taskCostEstimator, outboxMessageRepository, amqpAdmin,
+                new ObjectMapper(), new RetryPolicy(), deadLetterQueue, transactionTemplate);
+        ReflectionTestUtils.setField(dispatcher, "enabled", true);
+        ReflectionTestUtils.setField(dispatcher, "quantum", 10.0);
+        ReflectionTestUtils.setField(dispatcher, "maxTenantsPerCycle", 64);
+        // Broker vazio: o limite do ciclo é o próprio broker-backlog
+        when(amqpAdmin.getQueueInfo(anyString())).thenReturn(null);
+        when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.getArgument(0, TransactionCallback.class).doInTransaction(null));
+    }
+
+    @Test
+    void equalWeightsAlternateBetweenUsers() {
+        stubOutbox(List.of(messages(1L, 1, 10, 5), messages(2L, 1, 10, 5)));
+
+        assertThat(dispatchUsers(4)).containsExactly(1L, 2L, 1L, 2L);
+    }
+
+    @Test
+    void weightMultipliesShareOfEachRound() {
+        stubOutbox(List.of(messages(1L, 2, 10, 10), messages(2L, 1, 10, 10)));
+
+        assertThat(dispatchUsers(6)).containsExactly(1L, 1L, 2L, 1L, 1L, 2L);
+    }
+
+    @Test
+    void expensiveTaskWaitsUntilDeficitCoversItsCost() {
+        // Custo 25 com quantum 10: o usuário 1 só libera a tarefa na terceira visita
+        stubOutbox(List.of(messages(1L, 1, 25, 3), messages(2L, 1, 10, 5)));
+
+        assertThat(dispatchUsers(4)).containsExactly(2L, 2L, 1L, 2L);
+    }
+
+    @Test
+    void unusedCreditIsDroppedWhenQueueEmpties() {
+        stubOutbox(List.of(messages(1L, 1, 1, 1), messages(2L, 1, 10, 5)));
+        dispatchUsers(3);
+
+        // Uma única tarefa de custo 1 não deixa crédito acumulado para ciclos seguintes
+        assertThat(ReflectionTestUtils.getField(tenantState(1L), "deficit")).isEqualTo(0.0);
+    }
+
+    @Test
+    void failedPublishReleasesClaimedRows() {
+        stubOutbox(List.of(messages(1L, 1, 10, 2)));
+        ReflectionTestUtils.setField(dispatcher, "brokerBacklog", 2);
+        doThrow(new AmqpException("sem confirmação")).when(imageProcessingProducer).sendConfirmed(any());
+
+        assertThatThrownBy(() -> dispatcher.dispatch()).isInstanceOf(AmqpException.class);
+
+        // Reservadas na primeira transação, devolvidas sem apagar nada
+        verify(outboxMessageRepository).claim(eq(List.of(1L, 2L)), any(LocalDateTime.class));
+        verify(outboxMessageRepository).releaseClaims(List.of(1L, 2L));
+        verify(outboxMessageRepository, never()).deleteAllByIdInBatch(any());
+    }
+
+    private List<Long> dispatchUsers(int backlog) {
+        ReflectionTestUtils.setField(dispatcher, "brokerBacklog", backlog);
+        dispatcher.dispatch();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Long>> claimed = ArgumentCaptor.forClass(List.class);
+        verify(outboxMessageRepository).claim(claimed.capture(), any(LocalDateTime.class));
+        // As linhas publicadas são apagadas depois, numa segunda transação
+        verify(outboxMessageRepository).deleteAllByIdInBatch(claimed.getValue());
+        return claimed.getValue().stream().map(usersById::get).toList();
+    }
+
+    private void stubOutbox(List<List<OutboxMessage>> perUser) {
+        when(outboxMessageRepository.findFirstByOrderByIdAsc()).thenReturn(Optional.of(perUser.get(0).get(0)));
+        when(outboxMessageRepository.findPendingUserIds(any(LocalDateTime.class)))
+                .thenReturn(perUser.stream().map(rows -> rows.get(0).getUserId()).toList());
+        for (List<OutboxMessage> rows : perUser) {
+            when(outboxMessageRepository.lockOldestByUser(eq(rows.get(0).getUserId()), any(LocalDateTime.class),
+                    any(Pageable.class)))
+                    .thenAnswer(invocation -> rows.subList(0,
+                            Math.min(rows.size(), invocation.getArgument(2, Pageable.class).getPageSize())));
+        }
+    }
+
+    private List<OutboxMessage> messages(Long userId, int weight, double cost, int count) {
+        List<OutboxMessage> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(OutboxMessage.builder()
+                    .id(ids.incrementAndGet())
+                    .taskId(ids.get())
+                    .userId(userId)
+                    .weight(weight)
+                    .lane(ProcessingLane.SMALL)
+                    .cost(cost)
+                    .payload("{}")
+                    .createdAt(LocalDateTime.now())
+                    .build());
+            usersById.put(ids.get(), userId);
+        }
+        return rows;
+    }
+
+    private Object tenantState(Long userId) {
+        return ((Map<?, ?>) ReflectionTestUtils.getField(dispatcher, "tenants")).get(userId);
+    }
+}
@@ -0,0 +1,64 @@
+package com.imageprocessor.queue;
+
+import com.imageprocessor.exception.InvalidImageException;
+import com.imageprocessor.exception.PixelBudgetExhaustedException;
+import com.imageprocessor.exception.ResourceNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RetryPolicyTest {
+
+    private RetryPolicy retryPolicy;
+
+    @BeforeEach
+    void setUp() {
+        retryPolicy = new RetryPolicy();
+        ReflectionTestUtils.setField(retryPolicy, "maxAttempts", 4);
+        ReflectionTestUtils.setField(retryPolicy, "initialDelayMillis", 5000L);
+        ReflectionTestUtils.setField(retryPolicy, "levels", 5);
+    }
+
+    @Test
+    void invalidInputsArePermanent() {
+        assertThat(retryPolicy.isPermanent(new InvalidImageException("corrompida"))).isTrue();
+        assertThat(retryPolicy.isPermanent(new IllegalArgumentException("nenhuma operação"))).isTrue();
+        assertThat(retryPolicy.isPermanent(new ResourceNotFoundException("Image", "id", 1L))).isTrue();
+    }
+
+    @Test
+    void transientFailuresAreRetried() {
+        assertThat(retryPolicy.isPermanent(new IOException("disco"))).isFalse();
+        assertThat(retryPolicy.isPermanent(new PixelBudgetExhaustedException(1024, 100))).isFalse();
+        assertThat(retryPolicy.isPermanent(new IllegalStateException("broker"))).isFalse();
+    }
+
+    @Test
+    void missingFileIsRetried() {
+        // Nível de pirâmide descartado ou arquivo em migração de disposição
+        assertThat(retryPolicy.isPermanent(new NoSuchFileException("uploads/ab/cd/arquivo.png"))).isFalse();
+    }
+
+    @Test
+    void levelFollowsFailedAttemptsUpToLastQueue() {
+        assertThat(retryPolicy.levelFor(0)).isEqualTo(1);
+        assertThat(retryPolicy.levelFor(1)).isEqualTo(1);
+        assertThat(retryPolicy.levelFor(3)).isEqualTo(3);
+        assertThat(retryPolicy.levelFor(5)).isEqualTo(5);
+        assertThat(retryPolicy.levelFor(9)).isEqualTo(5);
+    }
+
+    @Test
+    void delayDoublesPerLevelAndCapsAtLastQueue() {
+        assertThat(retryPolicy.delayFor(1)).isEqualTo(5000L);
+        assertThat(retryPolicy.delayFor(2)).isEqualTo(10000L);
+        assertThat(retryPolicy.delayFor(4)).isEqualTo(40000L);
+        assertThat(retryPolicy.delayFor(5)).isEqualTo(80000L);
+        assertThat(retryPolicy.delayFor(8)).isEqualTo(80000L);
+    }
+}
@@ -0,0 +1,71 @@
+package com.imageprocessor.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StorageServiceLayoutTest {
+
+    @TempDir
+    Path uploadDir;
+
+    private StorageService storageService;
+
+    @BeforeEach
+    void setUp() {
+        storageService = new StorageService(null, null);
+        ReflectionTestUtils.setField(storageService, "uploadDir", uploadDir.toString());
+    }
+
+    @Test
+    void hexNamesUseTheirOwnPrefix() {
+        assertThat(StorageService.shardedName("1a2b3c4d-0000-4000-8000-000000000000.png"))
+                .isEqualTo("1a/2b/1a2b3c4d-0000-4000-8000-000000000000.png");
+        assertThat(StorageService.shardedName("ABCDEF.jpg")).isEqualTo("ab/cd/ABCDEF.jpg");
+    }
+
+    @Test
+    void otherNamesUseHashOfName() {
+        String prefix = String.format("%08x", "foto.png".hashCode());
+        assertThat(StorageService.shardedName("foto.png"))
+                .isEqualTo(prefix.substring(0, 2) + "/" + prefix.substring(2, 4) + "/foto.png");
+        assertThat(StorageService.shardedName("abc.png")).matches("[0-9a-f]{2}/[0-9a-f]{2}/abc\\.png");
+    }
+
+    @Test
+    void pathsWithDirectoryAreKept() {
+        assertThat(StorageService.shardedName("c5/ab/c5ab.png")).isEqualTo("c5/ab/c5ab.png");
+    }
+
+    @Test
+    void legacyFileIsReadUntilReplicated() throws IOException {
+        Path legacy = Files.writeString(uploadDir.resolve("abcd-1.png"), "x");
+        assertThat(storageService.getFilePath("abcd-1.png")).isEqualTo(legacy);
+
+        assertThat(storageService.migrateToShardedLayout("abcd-1.png")).isTrue();
+        Path sharded = uploadDir.resolve("ab/cd/abcd-1.png");
+        assertThat(sharded).hasContent("x");
+        // A cópia plana continua lá para leitores que já resolveram o caminho antigo
+        assertThat(legacy).exists();
+        assertThat(storageService.getFilePath("abcd-1.png")).isEqualTo(sharded);
+
+        // Segunda passada sobre o mesmo arquivo
+        assertThat(storageService.migrateToShardedLayout("abcd-1.png")).isTrue();
+
+        storageService.removeLegacyCopy("abcd-1.png");
+        assertThat(legacy).doesNotExist();
+        assertThat(sharded).exists();
+    }
+
+    @Test
+    void fileDeletedBeforeMigrationIsSkipped() {
+        assertThat(storageService.migrateToShardedLayout("abcd-2.png")).isFalse();
+    }
+}
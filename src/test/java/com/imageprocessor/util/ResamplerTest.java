@@ -0,0 +1,107 @@
+package com.imageprocessor.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.awt.image.BufferedImage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ResamplerTest {
+
+    private TileExecutor tileExecutor;
+    private Resampler resampler;
+
+    @BeforeEach
+    void setUp() {
+        tileExecutor = new TileExecutor();
+        ReflectionTestUtils.setField(tileExecutor, "parallelism", 2);
+        ReflectionTestUtils.setField(tileExecutor, "tilePixels", 256);
+        tileExecutor.init();
+        resampler = new Resampler(tileExecutor, new PixelKernelSelector());
+        ReflectionTestUtils.setField(resampler, "weightCacheSize", 8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        tileExecutor.shutdown();
+    }
+
+    @Test
+    void bilinearIsTriangle() {
+        assertThat(ResampleFilter.BILINEAR.weight(0)).isEqualTo(1.0);
+        assertThat(ResampleFilter.BILINEAR.weight(0.25)).isEqualTo(0.75);
+        assertThat(ResampleFilter.BILINEAR.weight(-0.5)).isEqualTo(0.5);
+        assertThat(ResampleFilter.BILINEAR.weight(1)).isEqualTo(0.0);
+    }
+
+    @Test
+    void mitchellMatchesCubicWithOneThird() {
+        assertThat(ResampleFilter.MITCHELL.weight(0)).isCloseTo(8.0 / 9.0, within(1e-12));
+        assertThat(ResampleFilter.MITCHELL.weight(1)).isCloseTo(1.0 / 18.0, within(1e-12));
+        assertThat(ResampleFilter.MITCHELL.weight(2)).isCloseTo(0.0, within(1e-12));
+        assertThat(ResampleFilter.MITCHELL.weight(-1.5)).isEqualTo(ResampleFilter.MITCHELL.weight(1.5));
+    }
+
+    @Test
+    void lanczosIsInterpolating() {
+        assertThat(ResampleFilter.LANCZOS3.weight(0)).isEqualTo(1.0);
+        assertThat(ResampleFilter.LANCZOS3.weight(1)).isCloseTo(0.0, within(1e-12));
+        assertThat(ResampleFilter.LANCZOS3.weight(2)).isCloseTo(0.0, within(1e-12));
+        assertThat(ResampleFilter.LANCZOS3.weight(3)).isEqualTo(0.0);
+        assertThat(ResampleFilter.LANCZOS3.weight(1.5)).isNegative();
+    }
+
+    @ParameterizedTest
+    @EnumSource(ResampleFilter.class)
+    void weightsAreNormalizedAndInsideSource(ResampleFilter filter) {
+        for (int[] sizes : new int[][]{{100, 37}, {37, 100}}) {
+            Resampler.Weights weights = new Resampler.Weights(sizes[0], sizes[1], filter);
+            for (int i = 0; i < sizes[1]; i++) {
+                double sum = 0;
+                for (int k = 0; k < weights.count[i]; k++) {
+                    sum += weights.weights[i * weights.stride + k];
+                }
+                assertThat(sum).isCloseTo(1.0, within(1e-5));
+                assertThat(weights.start[i]).isGreaterThanOrEqualTo(0);
+                assertThat(weights.start[i] + weights.count[i]).isLessThanOrEqualTo(sizes[0]);
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(ResampleFilter.class)
+    void uniformImageKeepsItsColor(ResampleFilter filter) {
+        BufferedImage image = new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, 0x783CC8);
+            }
+        }
+
+        for (int[] size : new int[][]{{17, 11}, {64, 45}}) {
+            BufferedImage result = resampler.resize(image, size[0], size[1], filter);
+            assertThat(result.getWidth()).isEqualTo(size[0]);
+            assertThat(result.getHeight()).isEqualTo(size[1]);
+            for (int y = 0; y < result.getHeight(); y++) {
+                for (int x = 0; x < result.getWidth(); x++) {
+                    int rgb = result.getRGB(x, y);
+                    assertThat((rgb >> 16) & 0xFF).isCloseTo(0x78, within(1));
+                    assertThat((rgb >> 8) & 0xFF).isCloseTo(0x3C, within(1));
+                    assertThat(rgb & 0xFF).isCloseTo(0xC8, within(1));
+                }
+            }
+        }
+    }
+
+    @Test
+    void scalrHasNoSeparableFilter() {
+        assertThat(ResizeMethod.SCALR.getFilter()).isNull();
+        assertThat(ResizeMethod.LANCZOS3.getFilter()).isEqualTo(ResampleFilter.LANCZOS3);
+    }
+}
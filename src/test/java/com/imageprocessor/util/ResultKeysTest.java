@@ -0,0 +1,50 @@
+package com.imageprocessor.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResultKeysTest {
+
+    private static final String HASH = "c5ab77908790908b46d750333dc264e4e5ec6e2e42b65310fc8041463b335346";
+
+    @Test
+    void resizeWithoutPercentageIsNoResize() {
+        assertThat(ResultKeys.compute(HASH, true, null, ResizeMethod.LANCZOS3, ResizeMethod.SCALR, true, ".png"))
+                .isEqualTo(ResultKeys.compute(HASH, false, null, null, ResizeMethod.SCALR, true, ".png"));
+        assertThat(ResultKeys.canonical(HASH, true, null, null, ResizeMethod.SCALR, false, ".png"))
+                .contains("|resize=none|");
+    }
+
+    @Test
+    void omittedMethodMatchesDefaultMethod() {
+        assertThat(ResultKeys.compute(HASH, true, 50, null, ResizeMethod.MITCHELL, false, ".png"))
+                .isEqualTo(ResultKeys.compute(HASH, true, 50, ResizeMethod.MITCHELL, ResizeMethod.MITCHELL, false, ".png"));
+    }
+
+    @Test
+    void fullSizeIgnoresMethod() {
+        assertThat(ResultKeys.compute(HASH, true, 100, ResizeMethod.LANCZOS3, ResizeMethod.SCALR, true, ".png"))
+                .isEqualTo(ResultKeys.compute(HASH, true, 100, ResizeMethod.BILINEAR, ResizeMethod.SCALR, true, ".png"));
+    }
+
+    @Test
+    void extensionCaseIsIgnored() {
+        assertThat(ResultKeys.compute(HASH, false, null, null, ResizeMethod.SCALR, true, ".PNG"))
+                .isEqualTo(ResultKeys.compute(HASH, false, null, null, ResizeMethod.SCALR, true, ".png"));
+    }
+
+    @Test
+    void differentOperationsGetDifferentKeys() {
+        String base = ResultKeys.compute(HASH, true, 50, ResizeMethod.SCALR, ResizeMethod.SCALR, false, ".png");
+        assertThat(ResultKeys.compute(HASH, true, 25, ResizeMethod.SCALR, ResizeMethod.SCALR, false, ".png")).isNotEqualTo(base);
+        assertThat(ResultKeys.compute(HASH, true, 50, ResizeMethod.LANCZOS3, ResizeMethod.SCALR, false, ".png")).isNotEqualTo(base);
+        assertThat(ResultKeys.compute(HASH, true, 50, ResizeMethod.SCALR, ResizeMethod.SCALR, true, ".png")).isNotEqualTo(base);
+        assertThat(ResultKeys.compute(HASH, true, 50, ResizeMethod.SCALR, ResizeMethod.SCALR, false, ".jpg")).isNotEqualTo(base);
+    }
+
+    @Test
+    void keyIsSha256Hex() {
+        assertThat(ResultKeys.compute(HASH, false, null, null, ResizeMethod.SCALR, true, ".png")).matches("[0-9a-f]{64}");
+    }
+}